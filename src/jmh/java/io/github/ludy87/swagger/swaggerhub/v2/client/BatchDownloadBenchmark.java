@@ -0,0 +1,110 @@
+/* Copyright 2025 Ludy87
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.ludy87.swagger.swaggerhub.v2.client;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import okhttp3.OkHttpClient;
+
+/**
+ * Definitions fetched per second when a batch is downloaded through {@link BatchExecutor} with
+ * increasing parallelism, as the upload and download tasks do for several definitions. {@code
+ * virtualThreads} compares the platform thread pool with virtual threads; on a runtime older than
+ * Java 21 both run on platform threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchDownloadBenchmark {
+    private static final int DEFINITIONS = 256;
+
+    @Param({"1", "4", "16", "64"})
+    public int parallelism;
+
+    @Param({"false", "true"})
+    public boolean virtualThreads;
+
+    @Param({"10240", "1048576"})
+    public int definitionSize;
+
+    private StubServer server;
+    private OkHttpClient okHttpClient;
+    private SwaggerHubClient client;
+    private List<SwaggerHubRequest> requests;
+
+    @Setup(Level.Trial)
+    public void startServer() throws IOException {
+        server = new StubServer(StubServer.definition(definitionSize));
+        // keep a pooled connection for every call in flight
+        okHttpClient =
+                StubServer.httpClient(HttpClientSettings.builder().maxIdleConnections(64).build());
+        client = server.client(okHttpClient);
+
+        requests = new ArrayList<>();
+        for (int i = 0; i < DEFINITIONS; i++) {
+            requests.add(
+                    SwaggerHubRequest.builder()
+                            .owner("benchmark")
+                            .api("api-" + i)
+                            .version("1.0.0")
+                            .build());
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void clearRecordedRequests() throws InterruptedException {
+        server.clearRecordedRequests();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopServer() throws IOException {
+        okHttpClient.dispatcher().executorService().shutdown();
+        okHttpClient.connectionPool().evictAll();
+        server.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DEFINITIONS)
+    public void getDefinitions() {
+        BatchExecutor.execute(
+                requests,
+                parallelism,
+                // the same bound for both modes, so only the threads differ
+                virtualThreads ? parallelism : 0,
+                SwaggerHubRequest::getApi,
+                client::getDefinition);
+    }
+}
@@ -0,0 +1,133 @@
+/* Copyright 2025 Ludy87
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.ludy87.swagger.swaggerhub.v2.client;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import okhttp3.OkHttpClient;
+import okhttp3.tls.HandshakeCertificates;
+import okhttp3.tls.HeldCertificate;
+
+/**
+ * Batch downloads from one TLS host over HTTP/1.1, with one connection per concurrent call, versus
+ * HTTP/2, multiplexing all calls over one connection. With {@code coldConnections} every batch
+ * starts with an empty connection pool, so connection and TLS setup are part of the measurement.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class Http2Benchmark {
+    @Param({"1.1", "2"})
+    public String httpVersion;
+
+    @Param({"true", "false"})
+    public boolean coldConnections;
+
+    @Param({"32"})
+    public int definitions;
+
+    @Param({"8"})
+    public int parallelism;
+
+    @Param({"51200"})
+    public int definitionSize;
+
+    private StubServer server;
+    private OkHttpClient okHttpClient;
+    private SwaggerHubClient client;
+    private List<SwaggerHubRequest> requests;
+
+    @Setup(Level.Trial)
+    public void startServer() throws IOException {
+        HeldCertificate certificate =
+                new HeldCertificate.Builder()
+                        .addSubjectAlternativeName(
+                                InetAddress.getByName("localhost").getCanonicalHostName())
+                        .build();
+        HandshakeCertificates serverCertificates =
+                new HandshakeCertificates.Builder().heldCertificate(certificate).build();
+        HandshakeCertificates clientCertificates =
+                new HandshakeCertificates.Builder()
+                        .addTrustedCertificate(certificate.certificate())
+                        .build();
+
+        server = new StubServer(StubServer.definition(definitionSize), serverCertificates);
+
+        okHttpClient =
+                StubServer.httpClient(HttpClientSettings.builder().httpVersion(httpVersion).build())
+                        .newBuilder()
+                        .sslSocketFactory(
+                                clientCertificates.sslSocketFactory(),
+                                clientCertificates.trustManager())
+                        .build();
+        client = server.client(okHttpClient);
+
+        requests = new ArrayList<>();
+        for (int i = 0; i < definitions; i++) {
+            requests.add(
+                    SwaggerHubRequest.builder()
+                            .owner("benchmark")
+                            .api("api-" + i)
+                            .version("1.0.0")
+                            .build());
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void resetConnections() {
+        if (coldConnections) {
+            okHttpClient.connectionPool().evictAll();
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void clearRecordedRequests() throws InterruptedException {
+        server.clearRecordedRequests();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopServer() throws IOException {
+        okHttpClient.dispatcher().executorService().shutdown();
+        okHttpClient.connectionPool().evictAll();
+        server.close();
+    }
+
+    @Benchmark
+    public void downloadBatch() {
+        BatchExecutor.execute(
+                requests, parallelism, SwaggerHubRequest::getApi, client::getDefinition);
+    }
+}
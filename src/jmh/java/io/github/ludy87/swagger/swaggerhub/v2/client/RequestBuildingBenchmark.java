@@ -0,0 +1,85 @@
+/* Copyright 2025 Ludy87
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.ludy87.swagger.swaggerhub.v2.client;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+
+/** Per-call overhead of building SwaggerHub URLs and content types, without any I/O. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestBuildingBenchmark {
+    @Param({"false", "true"})
+    public boolean onPremise;
+
+    @Param({"json", "yaml"})
+    public String format;
+
+    private SwaggerHubClient client;
+    private SwaggerHubRequest request;
+
+    @Setup
+    public void setUp() {
+        client =
+                SwaggerHubClient.builder()
+                        .host("swaggerhub.example.com")
+                        .port(443)
+                        .protocol("https")
+                        .onPremise(onPremise)
+                        .onPremiseAPISuffix("v1")
+                        .build();
+        request =
+                SwaggerHubRequest.builder()
+                        .owner("benchmark")
+                        .api("petstore")
+                        .version("1.0.0")
+                        .format(format)
+                        .oas("3.0.0")
+                        .build();
+    }
+
+    @Benchmark
+    public HttpUrl downloadUrl() {
+        return client.getDownloadUrl(request);
+    }
+
+    @Benchmark
+    public HttpUrl uploadUrl() {
+        return client.getUploadUrl(request);
+    }
+
+    @Benchmark
+    public MediaType mediaType() {
+        return client.getMediaType(request);
+    }
+}
@@ -0,0 +1,158 @@
+/* Copyright 2025 Ludy87
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.ludy87.swagger.swaggerhub.v2.client;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ServerSocketFactory;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.tls.HandshakeCertificates;
+import okio.Buffer;
+
+/**
+ * In-process stand-in for SwaggerHub that answers every download with the same definition and
+ * accepts every upload. Request bodies are discarded so large uploads do not pile up in memory.
+ *
+ * <p>MockWebServer writes response headers and body separately; its sockets disable Nagle's
+ * algorithm so small responses are not held back by the client's delayed ACKs, which would
+ * otherwise dominate the measurement.
+ */
+final class StubServer implements Closeable {
+    private final MockWebServer server = new MockWebServer();
+    private final String protocol;
+
+    StubServer(String definition) throws IOException {
+        this(definition, null);
+    }
+
+    /** Serves HTTPS with the given certificates, offering HTTP/2 and HTTP/1.1 via ALPN. */
+    StubServer(String definition, HandshakeCertificates certificates) throws IOException {
+        if (certificates != null) {
+            server.useHttps(certificates.sslSocketFactory(), false);
+            server.setProtocols(List.of(Protocol.HTTP_2, Protocol.HTTP_1_1));
+        }
+        protocol = certificates != null ? "https" : "http";
+        Buffer body = new Buffer().writeUtf8(definition);
+        server.setBodyLimit(0);
+        server.setServerSocketFactory(new NoDelayServerSocketFactory());
+        server.setDispatcher(
+                new Dispatcher() {
+                    @Override
+                    public MockResponse dispatch(RecordedRequest request) {
+                        if ("GET".equals(request.getMethod())) {
+                            // clones share the segments of the prepared body
+                            return new MockResponse().setBody(body.clone());
+                        }
+                        return new MockResponse().setResponseCode(201).setBody("{}");
+                    }
+                });
+        server.start();
+    }
+
+    /** The client the plugin would build from {@code settings}, without stats or metrics. */
+    static OkHttpClient httpClient(HttpClientSettings settings) {
+        return settings.createClient(null, null);
+    }
+
+    SwaggerHubClient client(OkHttpClient okHttpClient) {
+        return SwaggerHubClient.builder()
+                .host(server.getHostName())
+                .port(server.getPort())
+                .protocol(protocol)
+                .token("benchmark")
+                .onPremise(false)
+                .client(okHttpClient)
+                .build();
+    }
+
+    /** Drops the requests MockWebServer recorded so far. */
+    void clearRecordedRequests() throws InterruptedException {
+        while (server.takeRequest(0, TimeUnit.SECONDS) != null) {
+            // discard
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.shutdown();
+    }
+
+    /** Builds a JSON definition of roughly {@code size} bytes from repeated path items. */
+    static String definition(int size) {
+        StringBuilder definition =
+                new StringBuilder(size + 256)
+                        .append("{\"openapi\":\"3.0.0\",")
+                        .append("\"info\":{\"title\":\"Benchmark\",\"version\":\"1.0.0\"},")
+                        .append("\"paths\":{");
+        for (int i = 0; definition.length() < size; i++) {
+            if (i > 0) {
+                definition.append(',');
+            }
+            definition
+                    .append("\"/resources/")
+                    .append(i)
+                    .append("\":{\"get\":{\"operationId\":\"getResource")
+                    .append(i)
+                    .append("\",\"responses\":{\"200\":{\"description\":\"OK\"}}}}");
+        }
+        return definition.append("}}").toString();
+    }
+
+    private static final class NoDelayServerSocketFactory extends ServerSocketFactory {
+        @Override
+        public ServerSocket createServerSocket() throws IOException {
+            return new NoDelayServerSocket();
+        }
+
+        @Override
+        public ServerSocket createServerSocket(int port) throws IOException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ServerSocket createServerSocket(int port, int backlog) throws IOException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ServerSocket createServerSocket(int port, int backlog, InetAddress address)
+                throws IOException {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static final class NoDelayServerSocket extends ServerSocket {
+        NoDelayServerSocket() throws IOException {}
+
+        @Override
+        public Socket accept() throws IOException {
+            Socket socket = super.accept();
+            socket.setTcpNoDelay(true);
+            return socket;
+        }
+    }
+}
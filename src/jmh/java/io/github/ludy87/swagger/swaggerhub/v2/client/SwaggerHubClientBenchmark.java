@@ -0,0 +1,124 @@
+/* Copyright 2025 Ludy87
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.ludy87.swagger.swaggerhub.v2.client;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import okhttp3.OkHttpClient;
+
+/**
+ * Single downloads and uploads of definitions from 10 KB to 100 MB against a local stub server,
+ * covering the in-memory and the streaming variant of each path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class SwaggerHubClientBenchmark {
+    @Param({"10240", "1048576", "104857600"})
+    public int definitionSize;
+
+    private StubServer server;
+    private OkHttpClient okHttpClient;
+    private SwaggerHubClient client;
+    private Path definitionFile;
+    private Path outputFile;
+    private SwaggerHubRequest downloadRequest;
+    private SwaggerHubRequest uploadRequest;
+    private SwaggerHubRequest fileUploadRequest;
+
+    @Setup(Level.Trial)
+    public void startServer() throws IOException {
+        String definition = StubServer.definition(definitionSize);
+        server = new StubServer(definition);
+        okHttpClient = StubServer.httpClient(HttpClientSettings.defaults());
+        client = server.client(okHttpClient);
+
+        definitionFile = Files.createTempFile("swaggerhub-benchmark", ".json");
+        Files.write(definitionFile, definition.getBytes(StandardCharsets.UTF_8));
+        outputFile = Files.createTempFile("swaggerhub-benchmark", ".download");
+
+        downloadRequest =
+                SwaggerHubRequest.builder().owner("benchmark").api("api").version("1.0.0").build();
+        uploadRequest =
+                SwaggerHubRequest.builder()
+                        .owner("benchmark")
+                        .api("api")
+                        .version("1.0.0")
+                        .swagger(definition)
+                        .build();
+        fileUploadRequest =
+                SwaggerHubRequest.builder()
+                        .owner("benchmark")
+                        .api("api")
+                        .version("1.0.0")
+                        .definitionFile(definitionFile.toFile())
+                        .build();
+    }
+
+    @TearDown(Level.Iteration)
+    public void clearRecordedRequests() throws InterruptedException {
+        server.clearRecordedRequests();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopServer() throws IOException {
+        okHttpClient.dispatcher().executorService().shutdown();
+        okHttpClient.connectionPool().evictAll();
+        server.close();
+        Files.deleteIfExists(definitionFile);
+        Files.deleteIfExists(outputFile);
+    }
+
+    @Benchmark
+    public String getDefinition() {
+        return client.getDefinition(downloadRequest);
+    }
+
+    @Benchmark
+    public boolean downloadDefinition() {
+        return client.downloadDefinition(downloadRequest, outputFile);
+    }
+
+    @Benchmark
+    public void saveDefinition() {
+        client.saveDefinition(uploadRequest);
+    }
+
+    @Benchmark
+    public void saveDefinitionFromFile() {
+        client.saveDefinition(fileUploadRequest);
+    }
+}
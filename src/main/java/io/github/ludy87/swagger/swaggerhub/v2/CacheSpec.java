@@ -0,0 +1,37 @@
+/* Copyright 2025 Ludy87
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.ludy87.swagger.swaggerhub.v2;
+
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.provider.Property;
+
+/**
+ * The {@code cache} block of the {@code swaggerhub} extension. Downloaded definitions are kept in a
+ * directory shared by all builds of the user, by default below the Gradle user home.
+ */
+public abstract class CacheSpec {
+
+    public abstract Property<Boolean> getEnabled();
+
+    public abstract DirectoryProperty getDirectory();
+
+    /** Maximum size of the cache in megabytes, least recently used definitions are evicted. */
+    public abstract Property<Integer> getMaxSize();
+
+    void applyConventions() {
+        getEnabled().convention(false);
+        getMaxSize().convention(256);
+    }
+}
@@ -14,17 +14,17 @@
  */
 package io.github.ludy87.swagger.swaggerhub.v2;
 
-import java.io.FileWriter;
-import java.io.IOException;
-import java.io.PrintWriter;
+import org.gradle.api.provider.Property;
 
-public class DebugLogger {
-    public static void info(String message) {
-        System.out.println(message);
-        try (PrintWriter out = new PrintWriter(new FileWriter("test-output.log", true))) {
-            out.println(message);
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-    }
+/**
+ * The {@code rateLimit} block of the {@code swaggerhub} extension. Calls are not throttled unless
+ * {@link #getRequestsPerSecond()} is set.
+ */
+public abstract class RateLimitSpec {
+
+    /** Sustained number of calls per second, per host and token, across the whole build. */
+    public abstract Property<Integer> getRequestsPerSecond();
+
+    /** Calls that may be made at once before throttling starts, defaults to one second's worth. */
+    public abstract Property<Integer> getBurst();
 }
@@ -0,0 +1,40 @@
+/* Copyright 2025 Ludy87
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.ludy87.swagger.swaggerhub.v2;
+
+import org.gradle.api.flow.BuildWorkResult;
+import org.gradle.api.flow.FlowAction;
+import org.gradle.api.flow.FlowParameters;
+import org.gradle.api.provider.Property;
+import org.gradle.api.services.ServiceReference;
+import org.gradle.api.tasks.Input;
+
+/** Reports the SwaggerHub calls of the build once all of its work has completed. */
+public abstract class RequestMetricsReport implements FlowAction<RequestMetricsReport.Parameters> {
+
+    public interface Parameters extends FlowParameters {
+        @ServiceReference(SwaggerHubClientService.NAME)
+        Property<SwaggerHubClientService> getClientService();
+
+        /** Not used, but defers the action to the end of the build. */
+        @Input
+        Property<BuildWorkResult> getBuildResult();
+    }
+
+    @Override
+    public void execute(Parameters parameters) {
+        parameters.getClientService().get().reportCalls();
+    }
+}
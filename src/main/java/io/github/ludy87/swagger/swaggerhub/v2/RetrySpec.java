@@ -0,0 +1,62 @@
+/* Copyright 2025 Ludy87
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.ludy87.swagger.swaggerhub.v2;
+
+import java.util.ArrayList;
+
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+
+import io.github.ludy87.swagger.swaggerhub.v2.client.RetryPolicy;
+
+/**
+ * The {@code retry} block of the {@code swaggerhub} extension. Delays are given in milliseconds.
+ */
+public abstract class RetrySpec {
+
+    public abstract Property<Integer> getMaxAttempts();
+
+    public abstract Property<Long> getBackoffBase();
+
+    public abstract Property<Long> getBackoffCap();
+
+    public abstract ListProperty<Integer> getRetryableStatuses();
+
+    public abstract Property<Boolean> getHonorRetryAfter();
+
+    /** Also repeat uploads in cases where the server might already have processed them. */
+    public abstract Property<Boolean> getRetryNonIdempotent();
+
+    void applyConventions() {
+        RetryPolicy defaults = RetryPolicy.builder().build();
+        getMaxAttempts().convention(defaults.getMaxAttempts());
+        getBackoffBase().convention(defaults.getBackoffBaseMillis());
+        getBackoffCap().convention(defaults.getBackoffCapMillis());
+        getRetryableStatuses().convention(defaults.getRetryableStatuses());
+        getHonorRetryAfter().convention(defaults.isHonorRetryAfter());
+        getRetryNonIdempotent().convention(defaults.isRetryNonIdempotent());
+    }
+
+    public RetryPolicy toRetryPolicy() {
+        return RetryPolicy.builder()
+                .maxAttempts(getMaxAttempts().get())
+                .backoffBaseMillis(getBackoffBase().get())
+                .backoffCapMillis(getBackoffCap().get())
+                .retryableStatuses(new ArrayList<>(getRetryableStatuses().get()))
+                .honorRetryAfter(getHonorRetryAfter().get())
+                .retryNonIdempotent(getRetryNonIdempotent().get())
+                .build();
+    }
+}
@@ -0,0 +1,386 @@
+/* Copyright 2025 Ludy87
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.ludy87.swagger.swaggerhub.v2;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.gradle.api.Project;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.github.ludy87.swagger.swaggerhub.v2.client.BatchExecutor;
+import io.github.ludy87.swagger.swaggerhub.v2.client.DebugLogger;
+import io.github.ludy87.swagger.swaggerhub.v2.client.DefinitionCache;
+import io.github.ludy87.swagger.swaggerhub.v2.client.HttpClientSettings;
+import io.github.ludy87.swagger.swaggerhub.v2.client.RateLimiter;
+import io.github.ludy87.swagger.swaggerhub.v2.client.RefResolver;
+import io.github.ludy87.swagger.swaggerhub.v2.client.RequestMetrics;
+import io.github.ludy87.swagger.swaggerhub.v2.client.RetryPolicy;
+import io.github.ludy87.swagger.swaggerhub.v2.client.SwaggerHubClient;
+import io.github.ludy87.swagger.swaggerhub.v2.client.TransferStats;
+
+import okhttp3.OkHttpClient;
+
+/**
+ * Build wide owner of the HTTP client. All SwaggerHub tasks of a build share one connection pool,
+ * so warm (TLS) connections are reused across tasks, and one {@link SwaggerHubClient} per host and
+ * token.
+ */
+public abstract class SwaggerHubClientService
+        implements BuildService<SwaggerHubClientService.Params>, AutoCloseable {
+    public static final String NAME = "swaggerhubClientService";
+
+    public interface Params extends BuildServiceParameters {
+        Property<HttpClientSettings> getHttpClientSettings();
+
+        Property<RetryPolicy> getRetryPolicy();
+
+        Property<Integer> getRequestsPerSecond();
+
+        Property<Integer> getBurst();
+
+        /** Absent if the definition cache is disabled. */
+        DirectoryProperty getCacheDirectory();
+
+        Property<Integer> getCacheMaxSize();
+
+        Property<Boolean> getOffline();
+
+        Property<Boolean> getResumableDownloads();
+
+        /** Where the request metrics and the debug log of the build are written to. */
+        DirectoryProperty getReportDirectory();
+
+        /** {@code off}, {@code info}, {@code debug} or {@code trace}. */
+        Property<String> getDebugLevel();
+
+        Property<Boolean> getVirtualThreads();
+
+        Property<Integer> getMaxVirtualThreads();
+    }
+
+    public static final String METRICS_REPORT = "metrics.json";
+    public static final String DEBUG_LOG = "debug.log";
+
+    private static final Logger LOGGER = Logging.getLogger(SwaggerHubClientService.class);
+
+    private final Map<String, SwaggerHubClient> clients = new ConcurrentHashMap<>();
+    private final Map<String, RateLimiter> rateLimiters = new ConcurrentHashMap<>();
+    private OkHttpClient httpClient;
+    private OkHttpClient cleartextClient;
+    private DefinitionCache definitionCache;
+    private DebugLogger debugLogger;
+    private final RefResolver refResolver = new RefResolver();
+    private final TransferStats transferStats = new TransferStats();
+    private final RequestMetrics requestMetrics = new RequestMetrics();
+
+    /** Registers the service once per build, configured from the given project's extension. */
+    public static Provider<SwaggerHubClientService> register(
+            Project project, SwaggerHubExtension extension) {
+        return project.getGradle()
+                .getSharedServices()
+                .registerIfAbsent(
+                        NAME,
+                        SwaggerHubClientService.class,
+                        spec -> {
+                            spec.getParameters()
+                                    .getHttpClientSettings()
+                                    .set(project.provider(extension::toHttpClientSettings));
+                            spec.getParameters()
+                                    .getRetryPolicy()
+                                    .set(project.provider(extension.getRetry()::toRetryPolicy));
+                            spec.getParameters()
+                                    .getRequestsPerSecond()
+                                    .set(extension.getRateLimit().getRequestsPerSecond());
+                            spec.getParameters()
+                                    .getBurst()
+                                    .set(extension.getRateLimit().getBurst());
+                            CacheSpec cache = extension.getCache();
+                            spec.getParameters()
+                                    .getCacheDirectory()
+                                    .set(
+                                            cache.getDirectory()
+                                                    .filter(directory -> cache.getEnabled().get()));
+                            spec.getParameters().getCacheMaxSize().set(cache.getMaxSize());
+                            spec.getParameters()
+                                    .getOffline()
+                                    .set(project.getGradle().getStartParameter().isOffline());
+                            spec.getParameters()
+                                    .getResumableDownloads()
+                                    .set(extension.getResumableDownloads());
+                            spec.getParameters()
+                                    .getReportDirectory()
+                                    .set(
+                                            project.getRootProject()
+                                                    .getLayout()
+                                                    .getBuildDirectory()
+                                                    .dir("reports/swaggerhub"));
+                            spec.getParameters().getDebugLevel().set(extension.getDebugLevel());
+                            spec.getParameters()
+                                    .getVirtualThreads()
+                                    .set(extension.getVirtualThreads());
+                            spec.getParameters()
+                                    .getMaxVirtualThreads()
+                                    .set(extension.getMaxVirtualThreads());
+                            spec.getMaxParallelUsages().set(extension.getMaxParallelUsages());
+                        });
+    }
+
+    /**
+     * Bound of the virtual threads running a batch of definitions, {@code 0} if batches run on
+     * platform threads, see {@link BatchExecutor}.
+     */
+    public int getMaxVirtualThreads() {
+        if (!getParameters().getVirtualThreads().getOrElse(false)) {
+            return 0;
+        }
+        return getParameters()
+                .getMaxVirtualThreads()
+                .getOrElse(BatchExecutor.DEFAULT_MAX_VIRTUAL_THREADS);
+    }
+
+    public synchronized OkHttpClient getHttpClient() {
+        if (httpClient == null) {
+            httpClient =
+                    getParameters()
+                            .getHttpClientSettings()
+                            .get()
+                            .createClient(transferStats, requestMetrics);
+        }
+        return httpClient;
+    }
+
+    /** The client for plain http calls, which differs from {@link #getHttpClient()} for h2c. */
+    public synchronized OkHttpClient getCleartextClient() {
+        if (cleartextClient == null) {
+            cleartextClient =
+                    getParameters()
+                            .getHttpClientSettings()
+                            .get()
+                            .createCleartextClient(getHttpClient());
+        }
+        return cleartextClient;
+    }
+
+    public SwaggerHubClient getClient(
+            String host,
+            Integer port,
+            String protocol,
+            String token,
+            Boolean onPremise,
+            String onPremiseAPISuffix) {
+        String key =
+                String.join(
+                        "|",
+                        protocol,
+                        host,
+                        String.valueOf(port),
+                        String.valueOf(token),
+                        String.valueOf(onPremise),
+                        String.valueOf(onPremiseAPISuffix));
+        return clients.computeIfAbsent(
+                key,
+                ignored -> {
+                    getDebugLogger().info("New client for {}://{}:{}", protocol, host, port);
+                    return SwaggerHubClient.createOnPremise(
+                                    host,
+                                    port,
+                                    protocol,
+                                    token,
+                                    onPremise,
+                                    onPremiseAPISuffix,
+                                    "http".equalsIgnoreCase(protocol)
+                                            ? getCleartextClient()
+                                            : getHttpClient())
+                            .toBuilder()
+                            .retryPolicy(getParameters().getRetryPolicy().get())
+                            .rateLimiter(getRateLimiter(host, port, token))
+                            .definitionCache(getDefinitionCache())
+                            .offline(getParameters().getOffline().getOrElse(false))
+                            .resumableDownloads(
+                                    getParameters().getResumableDownloads().getOrElse(true))
+                            .debugLogger(getDebugLogger())
+                            .build();
+                });
+    }
+
+    /** Resolves references locally, keeping referenced documents for the rest of the build. */
+    public RefResolver getRefResolver() {
+        return refResolver;
+    }
+
+    /** The definition cache shared by all clients, or {@code null} if it is disabled. */
+    public synchronized DefinitionCache getDefinitionCache() {
+        if (definitionCache == null && getParameters().getCacheDirectory().isPresent()) {
+            definitionCache =
+                    new DefinitionCache(
+                            getParameters().getCacheDirectory().get().getAsFile().toPath(),
+                            getParameters().getCacheMaxSize().get() * 1024L * 1024L);
+        }
+        return definitionCache;
+    }
+
+    /** The debug log shared by all clients, {@link DebugLogger#DISABLED} unless configured. */
+    public synchronized DebugLogger getDebugLogger() {
+        if (debugLogger == null) {
+            debugLogger =
+                    DebugLogger.create(
+                            getParameters().getDebugLevel().getOrElse("off"),
+                            getParameters()
+                                    .getReportDirectory()
+                                    .file(DEBUG_LOG)
+                                    .get()
+                                    .getAsFile()
+                                    .toPath());
+        }
+        return debugLogger;
+    }
+
+    /**
+     * Limiters keyed by host and a hash of the token, or an empty map if calls are not throttled.
+     */
+    public Map<String, RateLimiter> getRateLimiters() {
+        return rateLimiters;
+    }
+
+    private RateLimiter getRateLimiter(String host, Integer port, String token) {
+        if (!getParameters().getRequestsPerSecond().isPresent()) {
+            return null;
+        }
+        String key =
+                host
+                        + ":"
+                        + port
+                        + (token != null ? "#" + SwaggerHubClient.tokenDigest(token) : "");
+        int requestsPerSecond = getParameters().getRequestsPerSecond().get();
+        int burst = getParameters().getBurst().getOrElse(requestsPerSecond);
+        return rateLimiters.computeIfAbsent(
+                key, ignored -> new RateLimiter(requestsPerSecond, burst));
+    }
+
+    /** Bytes transferred by all SwaggerHub calls of the build so far. */
+    public TransferStats getTransferStats() {
+        return transferStats;
+    }
+
+    /** Timings and status codes of all SwaggerHub calls of the build so far. */
+    public RequestMetrics getRequestMetrics() {
+        return requestMetrics;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (debugLogger != null) {
+            debugLogger.close();
+            debugLogger = null;
+        }
+        clients.clear();
+        if (httpClient != null) {
+            httpClient.dispatcher().executorService().shutdown();
+            httpClient.connectionPool().evictAll();
+            httpClient = null;
+            cleartextClient = null;
+        }
+    }
+
+    /**
+     * Logs a summary of the calls made so far and writes all metrics as JSON report. Called by
+     * {@link RequestMetricsReport} once all tasks have run, since output logged while build
+     * services are closed may not reach the console any more.
+     */
+    synchronized void reportCalls() {
+        List<RequestMetrics.Stats> stats = requestMetrics.getStats();
+        if (stats.isEmpty()) {
+            return;
+        }
+        LOGGER.info(
+                "SwaggerHub transfers: received {} bytes ({} decoded), sent {} bytes ({}"
+                        + " uncompressed)",
+                transferStats.getWireBytesReceived(),
+                transferStats.getBytesReceived(),
+                transferStats.getWireBytesSent(),
+                transferStats.getBytesSent());
+        rateLimiters.forEach(
+                (key, rateLimiter) ->
+                        LOGGER.info(
+                                "SwaggerHub rate limiter {}: {} calls, {} delayed, waited {} ms in"
+                                        + " total, {} ms at most",
+                                key,
+                                rateLimiter.getAcquisitions(),
+                                rateLimiter.getDelayedAcquisitions(),
+                                rateLimiter.getTotalWaitMillis(),
+                                rateLimiter.getMaxWaitMillis()));
+        long calls = 0;
+        long retries = 0;
+        long failures = 0;
+        long callMillis = 0;
+        for (RequestMetrics.Stats stat : stats) {
+            calls += stat.getCalls();
+            retries += stat.getRetries();
+            failures += stat.getFailures();
+            callMillis += stat.getCallMillis();
+            LOGGER.info(
+                    "SwaggerHub calls of {} to {}: {} calls, status codes {}, {} connections, {} ms"
+                            + " DNS, {} ms connecting ({} ms TLS), {} ms to first byte ({} ms at"
+                            + " most), {} ms transferring, {} ms rate limited",
+                    stat.getTask(),
+                    stat.getHost(),
+                    stat.getCalls(),
+                    stat.getStatusCodes(),
+                    stat.getConnections(),
+                    stat.getDnsMillis(),
+                    stat.getConnectMillis(),
+                    stat.getTlsMillis(),
+                    stat.getTimeToFirstByteMillis(),
+                    stat.getMaxTimeToFirstByteMillis(),
+                    stat.getTransferMillis(),
+                    stat.getRateLimitWaitMillis());
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("requests", stats);
+        report.put("transfers", transferStats);
+        report.put("rateLimiters", rateLimiters);
+        File reportFile =
+                getParameters().getReportDirectory().file(METRICS_REPORT).get().getAsFile();
+        try {
+            Files.createDirectories(reportFile.toPath().getParent());
+            new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(reportFile, report);
+        } catch (IOException e) {
+            LOGGER.warn("Could not write SwaggerHub metrics to {}: {}", reportFile, e.getMessage());
+            return;
+        }
+        LOGGER.lifecycle(
+                "SwaggerHub: {} calls, {} retried, {} failed, {} ms in calls. Metrics: {}",
+                calls,
+                retries,
+                failures,
+                callMillis,
+                reportFile.toURI());
+    }
+}
@@ -0,0 +1,141 @@
+/* Copyright 2025 Ludy87
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.ludy87.swagger.swaggerhub.v2;
+
+import java.util.ArrayList;
+
+import org.gradle.api.Action;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Nested;
+
+import io.github.ludy87.swagger.swaggerhub.v2.client.BatchExecutor;
+import io.github.ludy87.swagger.swaggerhub.v2.client.HttpClientSettings;
+
+/**
+ * Project wide settings of the plugin, configured through the {@code swaggerhub} block. Durations
+ * are given in seconds.
+ */
+public abstract class SwaggerHubExtension {
+    public static final String NAME = "swaggerhub";
+
+    public abstract Property<Integer> getMaxIdleConnections();
+
+    public abstract Property<Integer> getKeepAliveDuration();
+
+    public abstract Property<Integer> getConnectTimeout();
+
+    public abstract Property<Integer> getReadTimeout();
+
+    public abstract Property<Integer> getWriteTimeout();
+
+    public abstract Property<Integer> getMaxRequests();
+
+    public abstract Property<Integer> getMaxRequestsPerHost();
+
+    public abstract ListProperty<String> getProtocols();
+
+    /** {@code auto}, {@code 1.1} or {@code 2}, the latter also for plain http (h2c). */
+    public abstract Property<String> getHttpVersion();
+
+    /** Encodings accepted for downloads: {@code gzip}, {@code br} or {@code none}. */
+    public abstract Property<String> getDownloadCompression();
+
+    public abstract Property<Boolean> getGzipUploads();
+
+    /**
+     * Download definitions to files uncompressed, so that an interrupted transfer can be continued
+     * where it broke off. Ranges of a compressed response refer to the compressed bytes, so
+     * compressed transfers always start over.
+     */
+    public abstract Property<Boolean> getResumableDownloads();
+
+    /**
+     * Level of the debug log written to {@code build/reports/swaggerhub/debug.log}: {@code off},
+     * {@code info}, {@code debug} or {@code trace}.
+     */
+    public abstract Property<String> getDebugLevel();
+
+    /**
+     * Run the definitions of a multi-definition download or upload on virtual threads (Java 21 or
+     * later) instead of {@code maxParallelDownloads} or {@code maxParallelUploads} platform
+     * threads.
+     */
+    public abstract Property<Boolean> getVirtualThreads();
+
+    /** Maximum number of definitions of one task handled at the same time on virtual threads. */
+    public abstract Property<Integer> getMaxVirtualThreads();
+
+    /** Maximum number of SwaggerHub tasks talking to the server at the same time. */
+    public abstract Property<Integer> getMaxParallelUsages();
+
+    @Nested
+    public abstract RetrySpec getRetry();
+
+    public void retry(Action<? super RetrySpec> action) {
+        action.execute(getRetry());
+    }
+
+    @Nested
+    public abstract RateLimitSpec getRateLimit();
+
+    public void rateLimit(Action<? super RateLimitSpec> action) {
+        action.execute(getRateLimit());
+    }
+
+    @Nested
+    public abstract CacheSpec getCache();
+
+    public void cache(Action<? super CacheSpec> action) {
+        action.execute(getCache());
+    }
+
+    void applyConventions() {
+        HttpClientSettings defaults = HttpClientSettings.defaults();
+        getMaxIdleConnections().convention(defaults.getMaxIdleConnections());
+        getKeepAliveDuration().convention(defaults.getKeepAliveDuration());
+        getConnectTimeout().convention(defaults.getConnectTimeout());
+        getReadTimeout().convention(defaults.getReadTimeout());
+        getWriteTimeout().convention(defaults.getWriteTimeout());
+        getMaxRequests().convention(defaults.getMaxRequests());
+        getMaxRequestsPerHost().convention(defaults.getMaxRequestsPerHost());
+        getProtocols().convention(defaults.getProtocols());
+        getHttpVersion().convention(defaults.getHttpVersion());
+        getDownloadCompression().convention(defaults.getDownloadCompression());
+        getGzipUploads().convention(defaults.isGzipUploads());
+        getResumableDownloads().convention(true);
+        getDebugLevel().convention("off");
+        getVirtualThreads().convention(false);
+        getMaxVirtualThreads().convention(BatchExecutor.DEFAULT_MAX_VIRTUAL_THREADS);
+        getRetry().applyConventions();
+        getCache().applyConventions();
+    }
+
+    public HttpClientSettings toHttpClientSettings() {
+        return HttpClientSettings.builder()
+                .maxIdleConnections(getMaxIdleConnections().get())
+                .keepAliveDuration(getKeepAliveDuration().get())
+                .connectTimeout(getConnectTimeout().get())
+                .readTimeout(getReadTimeout().get())
+                .writeTimeout(getWriteTimeout().get())
+                .maxRequests(getMaxRequests().get())
+                .maxRequestsPerHost(getMaxRequestsPerHost().get())
+                .protocols(new ArrayList<>(getProtocols().get()))
+                .httpVersion(getHttpVersion().get())
+                .downloadCompression(getDownloadCompression().get())
+                .gzipUploads(getGzipUploads().get())
+                .build();
+    }
+}
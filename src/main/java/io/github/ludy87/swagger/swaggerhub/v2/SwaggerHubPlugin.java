@@ -31,16 +31,72 @@
  */
 package io.github.ludy87.swagger.swaggerhub.v2;
 
+import java.io.File;
+
+import javax.inject.Inject;
+
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
+import org.gradle.api.flow.FlowProviders;
+import org.gradle.api.flow.FlowScope;
+import org.gradle.api.provider.Provider;
 
 import io.github.ludy87.swagger.swaggerhub.v2.tasks.DownloadTask;
 import io.github.ludy87.swagger.swaggerhub.v2.tasks.SetDefaultVersion;
+import io.github.ludy87.swagger.swaggerhub.v2.tasks.SwaggerHubTask;
 import io.github.ludy87.swagger.swaggerhub.v2.tasks.UploadTask;
 
-public class SwaggerHubPlugin implements Plugin<Project> {
+public abstract class SwaggerHubPlugin implements Plugin<Project> {
+    @Inject
+    protected abstract FlowScope getFlowScope();
+
+    @Inject
+    protected abstract FlowProviders getFlowProviders();
+
     @Override
     public void apply(Project project) {
+        SwaggerHubExtension extension =
+                project.getExtensions().create(SwaggerHubExtension.NAME, SwaggerHubExtension.class);
+        extension.applyConventions();
+        extension
+                .getCache()
+                .getDirectory()
+                .convention(
+                        project.getLayout()
+                                .dir(
+                                        project.provider(
+                                                () ->
+                                                        new File(
+                                                                project.getGradle()
+                                                                        .getGradleUserHomeDir(),
+                                                                "caches/swaggerhub-definitions"))));
+        boolean firstProject =
+                project.getGradle()
+                                .getSharedServices()
+                                .getRegistrations()
+                                .findByName(SwaggerHubClientService.NAME)
+                        == null;
+        Provider<SwaggerHubClientService> clientService =
+                SwaggerHubClientService.register(project, extension);
+        if (firstProject) {
+            // once per build, like the service itself
+            getFlowScope()
+                    .always(
+                            RequestMetricsReport.class,
+                            spec ->
+                                    spec.getParameters()
+                                            .getBuildResult()
+                                            .set(getFlowProviders().getBuildWorkResult()));
+        }
+
+        project.getTasks()
+                .withType(SwaggerHubTask.class)
+                .configureEach(
+                        task -> {
+                            task.getClientService().set(clientService);
+                            task.usesService(clientService);
+                        });
+
         project.getTasks().register("swaggerhubDownload", DownloadTask.class);
         project.getTasks().register("swaggerhubUpload", UploadTask.class);
         project.getTasks().register("swaggerhubSetDefaultVersion", SetDefaultVersion.class);
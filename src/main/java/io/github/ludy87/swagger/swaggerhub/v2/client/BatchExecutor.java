@@ -0,0 +1,190 @@
+/* Copyright 2025 Ludy87
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.ludy87.swagger.swaggerhub.v2.client;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+/**
+ * Runs one action per item on a bounded thread pool and reports all failures together once every
+ * item has been processed. A single item is run directly and its exception is passed on unchanged.
+ */
+public final class BatchExecutor {
+    private static final Logger LOGGER = Logging.getLogger(BatchExecutor.class);
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+    // Executors.newVirtualThreadPerTaskExecutor() on Java 21+, null on older runtimes
+    private static final MethodHandle VIRTUAL_THREAD_EXECUTOR = findVirtualThreadExecutor();
+
+    /**
+     * Default bound of virtual threads. They hold no platform thread while waiting for SwaggerHub,
+     * so this is well above the usual {@code maxParallelDownloads} or {@code maxParallelUploads}.
+     */
+    public static final int DEFAULT_MAX_VIRTUAL_THREADS = 64;
+
+    private BatchExecutor() {}
+
+    public static <T> void execute(
+            Collection<T> items, int parallelism, Function<T, String> describe, Consumer<T> action)
+            throws GradleException {
+        execute(items, parallelism, 0, describe, action);
+    }
+
+    /**
+     * @param parallelism size of the platform thread pool
+     * @param maxVirtualThreads if positive, run each item on its own virtual thread instead, with
+     *     at most this many actions at the same time. Falls back to the platform thread pool if the
+     *     runtime has no virtual threads.
+     */
+    public static <T> void execute(
+            Collection<T> items,
+            int parallelism,
+            int maxVirtualThreads,
+            Function<T, String> describe,
+            Consumer<T> action)
+            throws GradleException {
+        if (items.isEmpty()) {
+            return;
+        }
+        if (items.size() == 1) {
+            action.accept(items.iterator().next());
+            return;
+        }
+
+        int threads = Math.max(1, Math.min(parallelism, items.size()));
+        ExecutorService executor = null;
+        if (maxVirtualThreads > 0) {
+            executor = newVirtualThreadExecutor();
+            if (executor == null) {
+                LOGGER.info(
+                        "Virtual threads need Java 21 or later, using {} platform threads",
+                        threads);
+            }
+        }
+        Semaphore permits = executor != null ? new Semaphore(maxVirtualThreads) : null;
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(threads, threadFactory());
+        }
+        List<T> submitted = new ArrayList<>(items);
+        List<Future<?>> futures = new ArrayList<>(submitted.size());
+        try {
+            for (T item : submitted) {
+                if (permits == null) {
+                    futures.add(executor.submit(() -> action.accept(item)));
+                } else {
+                    futures.add(
+                            executor.submit(
+                                    () -> {
+                                        permits.acquire();
+                                        try {
+                                            action.accept(item);
+                                        } finally {
+                                            permits.release();
+                                        }
+                                        return null;
+                                    }));
+                }
+            }
+
+            awaitAll(submitted, futures, describe);
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new GradleException("Interrupted while waiting for SwaggerHub operations", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    public static boolean isVirtualThreadsSupported() {
+        return VIRTUAL_THREAD_EXECUTOR != null;
+    }
+
+    private static <T> void awaitAll(
+            List<T> submitted, List<? extends Future<?>> futures, Function<T, String> describe)
+            throws InterruptedException {
+        List<String> failures = new ArrayList<>();
+        Throwable firstFailure = null;
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                futures.get(i).get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                if (firstFailure == null) {
+                    firstFailure = cause;
+                }
+                failures.add(describe.apply(submitted.get(i)) + ": " + cause.getMessage());
+            }
+        }
+
+        if (!failures.isEmpty()) {
+            throw new GradleException(
+                    failures.size()
+                            + " of "
+                            + submitted.size()
+                            + " operations failed:\n - "
+                            + String.join("\n - ", failures),
+                    firstFailure);
+        }
+    }
+
+    private static ExecutorService newVirtualThreadExecutor() {
+        if (VIRTUAL_THREAD_EXECUTOR == null) {
+            return null;
+        }
+        try {
+            return (ExecutorService) VIRTUAL_THREAD_EXECUTOR.invokeExact();
+        } catch (Throwable e) {
+            throw new IllegalStateException("Could not create a virtual thread executor", e);
+        }
+    }
+
+    private static MethodHandle findVirtualThreadExecutor() {
+        try {
+            return MethodHandles.publicLookup()
+                    .findStatic(
+                            Executors.class,
+                            "newVirtualThreadPerTaskExecutor",
+                            MethodType.methodType(ExecutorService.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    private static ThreadFactory threadFactory() {
+        return runnable -> {
+            Thread thread =
+                    new Thread(runnable, "swaggerhub-batch-" + THREAD_COUNT.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
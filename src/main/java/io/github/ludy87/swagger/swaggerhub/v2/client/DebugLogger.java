@@ -0,0 +1,233 @@
+/* Copyright 2025 Ludy87
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.ludy87.swagger.swaggerhub.v2.client;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.slf4j.helpers.MessageFormatter;
+
+/**
+ * Debug trace of the SwaggerHub calls, written to a file by a background thread so that callers
+ * never wait for I/O. Messages above the configured level are discarded before they are formatted
+ * or queued. When the queue is full, messages are dropped and counted rather than slowing the build
+ * down. Messages use {@code {}} placeholders.
+ */
+public class DebugLogger implements Closeable {
+    public enum Level {
+        OFF,
+        INFO,
+        DEBUG,
+        TRACE
+    }
+
+    /** Logs nothing and starts no thread. */
+    public static final DebugLogger DISABLED = new DebugLogger(Level.OFF, null, 0);
+
+    public static final int DEFAULT_CAPACITY = 8192;
+
+    private static final Logger LOGGER = Logging.getLogger(DebugLogger.class);
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final Level level;
+    private final Path file;
+    private final int capacity;
+    private final Queue<Entry> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread writer;
+    private volatile boolean closed;
+
+    private DebugLogger(Level level, Path file, int capacity) {
+        this.level = level;
+        this.file = file;
+        this.capacity = capacity;
+        if (level == Level.OFF) {
+            this.writer = null;
+            return;
+        }
+        this.writer = new Thread(this::drain, "swaggerhub-debug-log");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /** Starts logging to {@code file}, or returns {@link #DISABLED} for level {@code off}. */
+    public static DebugLogger create(String level, Path file) throws GradleException {
+        return create(parseLevel(level), file, DEFAULT_CAPACITY);
+    }
+
+    public static DebugLogger create(Level level, Path file, int capacity) {
+        if (level == Level.OFF) {
+            return DISABLED;
+        }
+        return new DebugLogger(level, file, Math.max(1, capacity));
+    }
+
+    public static Level parseLevel(String level) throws GradleException {
+        try {
+            return Level.valueOf(level.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new GradleException(
+                    "Unsupported debug level '"
+                            + level
+                            + "', expected one of off, info, debug, trace");
+        }
+    }
+
+    public boolean isEnabled(Level messageLevel) {
+        return messageLevel != Level.OFF && messageLevel.compareTo(level) <= 0;
+    }
+
+    public boolean isDebugEnabled() {
+        return isEnabled(Level.DEBUG);
+    }
+
+    public boolean isTraceEnabled() {
+        return isEnabled(Level.TRACE);
+    }
+
+    public void info(String format, Object... arguments) {
+        log(Level.INFO, format, arguments);
+    }
+
+    public void debug(String format, Object... arguments) {
+        log(Level.DEBUG, format, arguments);
+    }
+
+    public void trace(String format, Object... arguments) {
+        log(Level.TRACE, format, arguments);
+    }
+
+    /** Messages dropped because the queue was full. */
+    public long getDroppedMessages() {
+        return dropped.get();
+    }
+
+    private void log(Level messageLevel, String format, Object[] arguments) {
+        if (!isEnabled(messageLevel) || closed) {
+            return;
+        }
+        int queued = size.incrementAndGet();
+        if (queued > capacity) {
+            size.decrementAndGet();
+            dropped.incrementAndGet();
+            return;
+        }
+        queue.offer(
+                new Entry(
+                        System.currentTimeMillis(),
+                        messageLevel,
+                        Thread.currentThread().getName(),
+                        format,
+                        arguments));
+        if (queued == capacity / 2) {
+            // do not wait for the writer's next poll when messages pile up
+            LockSupport.unpark(writer);
+        }
+    }
+
+    private void drain() {
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            try (BufferedWriter out =
+                    Files.newBufferedWriter(
+                            file,
+                            StandardCharsets.UTF_8,
+                            StandardOpenOption.CREATE,
+                            StandardOpenOption.TRUNCATE_EXISTING,
+                            StandardOpenOption.WRITE)) {
+                while (true) {
+                    Entry entry = queue.poll();
+                    if (entry == null) {
+                        out.flush();
+                        if (closed && queue.isEmpty()) {
+                            break;
+                        }
+                        LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                        continue;
+                    }
+                    size.decrementAndGet();
+                    entry.writeTo(out);
+                }
+                if (dropped.get() > 0) {
+                    out.write(dropped.get() + " messages dropped, the debug log queue was full");
+                    out.newLine();
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Could not write SwaggerHub debug log {}: {}", file, e.getMessage());
+            closed = true;
+            queue.clear();
+        }
+    }
+
+    /** Writes out all queued messages and stops the writer thread. */
+    @Override
+    public void close() {
+        if (writer == null || closed) {
+            return;
+        }
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Entry {
+        private final long timestamp;
+        private final Level level;
+        private final String thread;
+        private final String format;
+        private final Object[] arguments;
+
+        Entry(long timestamp, Level level, String thread, String format, Object[] arguments) {
+            this.timestamp = timestamp;
+            this.level = level;
+            this.thread = thread;
+            this.format = format;
+            this.arguments = arguments;
+        }
+
+        void writeTo(BufferedWriter out) throws IOException {
+            out.write(Instant.ofEpochMilli(timestamp).toString());
+            out.write(' ');
+            out.write(level.name());
+            out.write(" [");
+            out.write(thread);
+            out.write("] ");
+            out.write(MessageFormatter.arrayFormat(format, arguments).getMessage());
+            out.newLine();
+        }
+    }
+}
@@ -0,0 +1,216 @@
+/* Copyright 2025 Ludy87
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.ludy87.swagger.swaggerhub.v2.client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+
+import lombok.Value;
+
+/**
+ * Definitions downloaded by any build on this machine, stored with their ETag and Last-Modified
+ * values. Once the cache grows beyond its maximum size the least recently used definitions are
+ * removed. Several builds may use the same directory at once, entries are replaced atomically.
+ *
+ * <p>Each body is written under a new name first, and the metadata naming it is moved into place
+ * last. A crash in between leaves the previous entry intact and an unreferenced body, which is
+ * evicted like any other.
+ */
+public class DefinitionCache {
+    private static final String BODY = ".def";
+    private static final String META = ".properties";
+    private static final String ETAG = "etag";
+    private static final String LAST_MODIFIED = "lastModified";
+    private static final String BODY_FILE = "body";
+
+    private final Path directory;
+    private final long maxSize;
+
+    /**
+     * @param maxSize maximum total size of the cached definitions in bytes
+     */
+    public DefinitionCache(Path directory, long maxSize) {
+        this.directory = directory;
+        this.maxSize = maxSize;
+    }
+
+    /** A cached definition, {@code body} is only valid until the next eviction. */
+    @Value
+    public static class Entry {
+        Path body;
+        String eTag;
+        String lastModified;
+    }
+
+    /**
+     * @return the entry stored under {@code key}, or {@code null}
+     */
+    public Entry get(String key) throws IOException {
+        String name = fileName(key);
+        Properties properties = readMeta(directory.resolve(name + META));
+        String bodyFile = properties != null ? properties.getProperty(BODY_FILE) : null;
+        // entries of earlier versions have no body reference
+        if (bodyFile == null) {
+            return null;
+        }
+        Path body = directory.resolve(bodyFile);
+        if (!Files.isRegularFile(body)) {
+            return null;
+        }
+        return new Entry(body, properties.getProperty(ETAG), properties.getProperty(LAST_MODIFIED));
+    }
+
+    /** Marks the entry as recently used. */
+    public void touch(Entry entry) {
+        try {
+            Files.setLastModifiedTime(
+                    entry.getBody(), FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            // evicted in the meantime, nothing to keep alive
+        }
+    }
+
+    /** Stores a copy of {@code file} under {@code key} and evicts old entries if necessary. */
+    public void put(String key, Path file, String eTag, String lastModified) throws IOException {
+        Files.createDirectories(directory);
+        String name = fileName(key);
+
+        Path body = Files.createTempFile(directory, name, ".tmp");
+        Path meta = Files.createTempFile(directory, name, ".tmp");
+        Path metaFile = directory.resolve(name + META);
+        try {
+            Files.copy(file, body, StandardCopyOption.REPLACE_EXISTING);
+            Path bodyFile = directory.resolve(name + "." + UUID.randomUUID() + BODY);
+            AtomicFiles.move(body, bodyFile);
+            Properties properties = new Properties();
+            properties.setProperty(BODY_FILE, bodyFile.getFileName().toString());
+            if (eTag != null) {
+                properties.setProperty(ETAG, eTag);
+            }
+            if (lastModified != null) {
+                properties.setProperty(LAST_MODIFIED, lastModified);
+            }
+            try (OutputStream out = Files.newOutputStream(meta)) {
+                properties.store(out, key);
+            }
+            Properties previous = readMeta(metaFile);
+            AtomicFiles.move(meta, metaFile);
+            if (previous != null && previous.getProperty(BODY_FILE) != null) {
+                Files.deleteIfExists(directory.resolve(previous.getProperty(BODY_FILE)));
+            }
+        } finally {
+            Files.deleteIfExists(body);
+            Files.deleteIfExists(meta);
+        }
+        evict();
+    }
+
+    /** Deletes least recently used entries until the cache fits into its maximum size. */
+    synchronized void evict() throws IOException {
+        List<Candidate> candidates = new ArrayList<>();
+        long total = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + BODY)) {
+            for (Path body : stream) {
+                Candidate candidate = new Candidate(body, sizeOf(body), lastModifiedOf(body));
+                candidates.add(candidate);
+                total += candidate.getSize();
+            }
+        }
+        if (total <= maxSize) {
+            return;
+        }
+
+        candidates.sort(Comparator.comparing(Candidate::getLastUsed));
+        for (Candidate candidate : candidates) {
+            if (total <= maxSize) {
+                break;
+            }
+            String bodyFile = candidate.getBody().getFileName().toString();
+            Path meta = directory.resolve(bodyFile.substring(0, bodyFile.indexOf('.')) + META);
+            Properties properties = readMeta(meta);
+            if (properties != null && bodyFile.equals(properties.getProperty(BODY_FILE))) {
+                Files.deleteIfExists(meta);
+            }
+            Files.deleteIfExists(candidate.getBody());
+            total -= candidate.getSize();
+        }
+    }
+
+    @Value
+    private static class Candidate {
+        Path body;
+        long size;
+        FileTime lastUsed;
+    }
+
+    /**
+     * @return {@code null} if there is no metadata file
+     */
+    private static Properties readMeta(Path meta) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(meta)) {
+            properties.load(in);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        return properties;
+    }
+
+    private static long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static FileTime lastModifiedOf(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private static String fileName(String key) {
+        try {
+            byte[] hash =
+                    MessageDigest.getInstance("SHA-256")
+                            .digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder result = new StringBuilder();
+            for (byte b : hash) {
+                result.append(String.format("%02x", b));
+            }
+            return result.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/* Copyright 2025 Ludy87
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.ludy87.swagger.swaggerhub.v2.client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLMapper;
+
+/**
+ * SHA-256 digest of the parsed content of a definition. Whitespace, key order, quoting style and
+ * the choice between JSON and YAML do not change the digest, so a definition reformatted by
+ * SwaggerHub still matches the local file it was uploaded from.
+ */
+public final class DefinitionDigest {
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final ObjectMapper YAML = new YAMLMapper();
+
+    private DefinitionDigest() {}
+
+    public static String of(Path file, String format) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return of(mapper(format).readTree(in));
+        }
+    }
+
+    public static String of(String content, String format) throws IOException {
+        return of(mapper(format).readTree(content));
+    }
+
+    private static ObjectMapper mapper(String format) {
+        return "yaml".equalsIgnoreCase(format) ? YAML : JSON;
+    }
+
+    private static String of(JsonNode node) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        update(digest, node);
+        StringBuilder result = new StringBuilder();
+        for (byte b : digest.digest()) {
+            result.append(String.format("%02x", b));
+        }
+        return result.toString();
+    }
+
+    /** Feeds a canonical form of the node: sorted object keys, numbers without trailing zeros. */
+    private static void update(MessageDigest digest, JsonNode node) {
+        if (node == null || node.isNull() || node.isMissingNode()) {
+            digest.update((byte) 'n');
+        } else if (node.isObject()) {
+            List<Map.Entry<String, JsonNode>> fields = new ArrayList<>(node.properties());
+            fields.sort(Map.Entry.comparingByKey());
+            digest.update((byte) '{');
+            for (Map.Entry<String, JsonNode> field : fields) {
+                updateString(digest, field.getKey());
+                update(digest, field.getValue());
+            }
+            digest.update((byte) '}');
+        } else if (node.isArray()) {
+            digest.update((byte) '[');
+            for (JsonNode element : node) {
+                update(digest, element);
+            }
+            digest.update((byte) ']');
+        } else if (node.isNumber()) {
+            digest.update((byte) '#');
+            updateString(digest, node.decimalValue().stripTrailingZeros().toPlainString());
+        } else if (node.isBoolean()) {
+            digest.update((byte) (node.booleanValue() ? 't' : 'f'));
+        } else {
+            digest.update((byte) '"');
+            updateString(digest, node.asText());
+        }
+    }
+
+    private static void updateString(MessageDigest digest, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        // length prefix keeps adjacent strings from running into each other
+        digest.update(Integer.toString(bytes.length).getBytes(StandardCharsets.US_ASCII));
+        digest.update((byte) ':');
+        digest.update(bytes);
+    }
+}
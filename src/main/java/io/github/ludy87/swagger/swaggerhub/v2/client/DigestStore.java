@@ -0,0 +1,66 @@
+/* Copyright 2025 Ludy87
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.ludy87.swagger.swaggerhub.v2.client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+/**
+ * {@link DefinitionDigest Digests} of the definitions last uploaded, persisted in a properties file
+ * so that later builds can skip uploads that would not change anything.
+ */
+public class DigestStore {
+    private final Path file;
+    private final Properties properties = new Properties();
+    private boolean dirty;
+
+    private DigestStore(Path file) {
+        this.file = file;
+    }
+
+    public static DigestStore load(Path file) throws IOException {
+        DigestStore store = new DigestStore(file);
+        if (Files.isRegularFile(file)) {
+            try (InputStream in = Files.newInputStream(file)) {
+                store.properties.load(in);
+            }
+        }
+        return store;
+    }
+
+    public synchronized String getDigest(String key) {
+        return properties.getProperty(key);
+    }
+
+    public synchronized void update(String key, String digest) {
+        properties.setProperty(key, digest);
+        dirty = true;
+    }
+
+    public synchronized void save() throws IOException {
+        if (!dirty) {
+            return;
+        }
+        Files.createDirectories(file.getParent());
+        try (OutputStream out = Files.newOutputStream(file)) {
+            properties.store(out, "SwaggerHub uploaded definition digests");
+        }
+        dirty = false;
+    }
+}
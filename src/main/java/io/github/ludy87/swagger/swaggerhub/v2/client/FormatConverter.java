@@ -0,0 +1,124 @@
+/* Copyright 2025 Ludy87
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.ludy87.swagger.swaggerhub.v2.client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.yaml.snakeyaml.nodes.NodeId;
+import org.yaml.snakeyaml.nodes.Tag;
+import org.yaml.snakeyaml.resolver.Resolver;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.util.DefaultIndenter;
+import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
+import com.fasterxml.jackson.core.util.Separators;
+import com.fasterxml.jackson.core.util.Separators.Spacing;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.fasterxml.jackson.dataformat.yaml.YAMLGenerator;
+import com.fasterxml.jackson.dataformat.yaml.util.StringQuotingChecker;
+
+/**
+ * Converts definitions between JSON and YAML event by event, so only the current token is held in
+ * memory however large the definition is. Key order and exact number values are kept.
+ */
+public final class FormatConverter {
+    private static final JsonFactory JSON = new JsonFactory();
+    private static final YAMLFactory YAML =
+            YAMLFactory.builder()
+                    .disable(YAMLGenerator.Feature.WRITE_DOC_START_MARKER)
+                    .enable(YAMLGenerator.Feature.MINIMIZE_QUOTES)
+                    .enable(YAMLGenerator.Feature.INDENT_ARRAYS_WITH_INDICATOR)
+                    .stringQuotingChecker(new YamlStringQuoting())
+                    .build();
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private FormatConverter() {}
+
+    /** Writes {@code source} in {@code targetFormat} to {@code target}, replacing it atomically. */
+    public static void convert(Path source, String sourceFormat, Path target, String targetFormat)
+            throws IOException {
+        AtomicFiles.write(
+                target,
+                out -> {
+                    try (InputStream in = Files.newInputStream(source)) {
+                        convert(in, sourceFormat, out, targetFormat);
+                    }
+                });
+    }
+
+    /** Writes an already parsed definition in {@code format}, replacing {@code target}. */
+    public static void write(JsonNode definition, Path target, String format) throws IOException {
+        AtomicFiles.write(
+                target,
+                out -> {
+                    try (JsonGenerator generator = createGenerator(out, format)) {
+                        MAPPER.writeTree(generator, definition);
+                    }
+                });
+    }
+
+    public static void convert(
+            InputStream in, String sourceFormat, OutputStream out, String targetFormat)
+            throws IOException {
+        try (JsonParser parser = factory(sourceFormat).createParser(in);
+                JsonGenerator generator = createGenerator(out, targetFormat)) {
+            while (parser.nextToken() != null) {
+                generator.copyCurrentEventExact(parser);
+            }
+        }
+    }
+
+    /**
+     * Quotes every string a YAML 1.1 reader would not read back as a string, such as {@code 1.0},
+     * {@code 1e3}, {@code 0x1F}, {@code 2024-01-01}, {@code .inf} or {@code yes}.
+     */
+    private static final class YamlStringQuoting extends StringQuotingChecker.Default {
+        private static final long serialVersionUID = 1L;
+        private static final Resolver RESOLVER = new Resolver();
+
+        @Override
+        public boolean needToQuoteValue(String value) {
+            return super.needToQuoteValue(value)
+                    || !Tag.STR.equals(RESOLVER.resolve(NodeId.scalar, value, true));
+        }
+    }
+
+    private static JsonFactory factory(String format) {
+        return "yaml".equalsIgnoreCase(format) ? YAML : JSON;
+    }
+
+    private static JsonGenerator createGenerator(OutputStream out, String format)
+            throws IOException {
+        JsonGenerator generator = factory(format).createGenerator(out);
+        if (!"yaml".equalsIgnoreCase(format)) {
+            generator.setPrettyPrinter(
+                    new DefaultPrettyPrinter()
+                            .withObjectIndenter(new DefaultIndenter("  ", "\n"))
+                            .withArrayIndenter(new DefaultIndenter("  ", "\n"))
+                            .withSeparators(
+                                    Separators.createDefaultInstance()
+                                            .withObjectFieldValueSpacing(Spacing.AFTER)));
+        }
+        return generator;
+    }
+}
@@ -0,0 +1,49 @@
+/* Copyright 2025 Ludy87
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.ludy87.swagger.swaggerhub.v2.client;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.gradle.api.GradleException;
+
+/** Waits for the futures of asynchronous {@link SwaggerHubClient} calls. */
+public final class Futures {
+    private Futures() {}
+
+    /**
+     * Waits for {@code future}. Interrupting the waiting thread, as Gradle does when the build is
+     * cancelled, cancels the future and with it the call in flight. Unchecked failures of the call
+     * are rethrown as they are.
+     *
+     * @param description what is waited for, for the error message
+     */
+    public static <T> T await(CompletableFuture<T> future, String description)
+            throws GradleException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new GradleException("Interrupted while waiting for " + description, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new GradleException(cause.getMessage(), cause);
+        }
+    }
+}
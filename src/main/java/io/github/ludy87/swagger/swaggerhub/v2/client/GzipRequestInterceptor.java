@@ -0,0 +1,98 @@
+/* Copyright 2025 Ludy87
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.ludy87.swagger.swaggerhub.v2.client;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okio.BufferedSink;
+import okio.ForwardingSink;
+import okio.GzipSink;
+import okio.Okio;
+import okio.Sink;
+
+/**
+ * Compresses request bodies with gzip while they are sent. Hosts answering {@code 415 Unsupported
+ * Media Type} to a compressed body get the request again uncompressed, and are not sent compressed
+ * bodies for the rest of the build.
+ */
+public class GzipRequestInterceptor implements Interceptor {
+    private static final Logger LOGGER = Logging.getLogger(GzipRequestInterceptor.class);
+    private static final int HTTP_UNSUPPORTED_MEDIA_TYPE = 415;
+
+    private final Set<String> rejectingHosts = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        String host = request.url().host() + ":" + request.url().port();
+        if (request.body() == null
+                || request.header("Content-Encoding") != null
+                || request.body().isOneShot()
+                || rejectingHosts.contains(host)) {
+            return chain.proceed(request);
+        }
+
+        Response response =
+                chain.proceed(
+                        request.newBuilder()
+                                .header("Content-Encoding", "gzip")
+                                .method(request.method(), gzip(request.body()))
+                                .build());
+        if (response.code() != HTTP_UNSUPPORTED_MEDIA_TYPE) {
+            return response;
+        }
+        response.close();
+        LOGGER.info("{} does not accept gzip request bodies, sending them uncompressed", host);
+        rejectingHosts.add(host);
+        return chain.proceed(request);
+    }
+
+    private static RequestBody gzip(RequestBody body) {
+        return new RequestBody() {
+            @Override
+            public MediaType contentType() {
+                return body.contentType();
+            }
+
+            @Override
+            public long contentLength() {
+                return -1;
+            }
+
+            @Override
+            public void writeTo(BufferedSink sink) throws IOException {
+                // finishing the gzip stream must not close the connection's sink
+                Sink unclosed =
+                        new ForwardingSink(sink) {
+                            @Override
+                            public void close() {}
+                        };
+                try (BufferedSink gzipSink = Okio.buffer(new GzipSink(unclosed))) {
+                    body.writeTo(gzipSink);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,183 @@
+/* Copyright 2025 Ludy87
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.ludy87.swagger.swaggerhub.v2.client;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.gradle.api.GradleException;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.brotli.BrotliInterceptor;
+
+/** Connection pool, dispatcher, timeout and protocol settings of the underlying OkHttp client. */
+@Getter
+@Builder
+@ToString
+public class HttpClientSettings implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final String HTTP_AUTO = "auto";
+    private static final String HTTP_1_1 = "1.1";
+    private static final String HTTP_2 = "2";
+
+    @Builder.Default private final int maxIdleConnections = 5;
+    @Builder.Default private final int keepAliveDuration = 300;
+    @Builder.Default private final int connectTimeout = 10;
+    @Builder.Default private final int readTimeout = 10;
+    @Builder.Default private final int writeTimeout = 10;
+    @Builder.Default private final int maxRequests = 64;
+    @Builder.Default private final int maxRequestsPerHost = 5;
+    @Builder.Default private final List<String> protocols = new ArrayList<>();
+
+    /**
+     * {@code auto} uses {@link #protocols}, {@code 1.1} only HTTP/1.1 and {@code 2} multiplexes
+     * concurrent calls over one HTTP/2 connection, negotiated via ALPN for https and with prior
+     * knowledge (h2c) for plain http.
+     */
+    @Builder.Default private final String httpVersion = HTTP_AUTO;
+
+    /**
+     * Encodings accepted for downloads: {@code gzip}, {@code br} (Brotli, falling back to gzip) or
+     * {@code none}. Responses are decompressed while they are streamed.
+     */
+    @Builder.Default private final String downloadCompression = "gzip";
+
+    /** Compress upload bodies with gzip, as long as the server does not reject them. */
+    @Builder.Default private final boolean gzipUploads = false;
+
+    public static HttpClientSettings defaults() {
+        return HttpClientSettings.builder().build();
+    }
+
+    /**
+     * @param transferStats counts the bytes transferred by the client, may be {@code null}
+     * @param requestMetrics records timings and status codes of all calls, may be {@code null}
+     */
+    public OkHttpClient createClient(TransferStats transferStats, RequestMetrics requestMetrics)
+            throws GradleException {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(maxRequests);
+        dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+
+        OkHttpClient.Builder builder =
+                new OkHttpClient.Builder()
+                        .connectionPool(
+                                new ConnectionPool(
+                                        maxIdleConnections, keepAliveDuration, TimeUnit.SECONDS))
+                        .dispatcher(dispatcher)
+                        .connectTimeout(connectTimeout, TimeUnit.SECONDS)
+                        .readTimeout(readTimeout, TimeUnit.SECONDS)
+                        .writeTimeout(writeTimeout, TimeUnit.SECONDS);
+        if (transferStats != null) {
+            // outermost and innermost, to see bodies both uncompressed and as transferred
+            builder.addInterceptor(transferStats.applicationInterceptor());
+            builder.addNetworkInterceptor(transferStats.networkInterceptor());
+        }
+        if (requestMetrics != null) {
+            builder.eventListenerFactory(requestMetrics.eventListenerFactory());
+        }
+        if (gzipUploads) {
+            builder.addInterceptor(new GzipRequestInterceptor());
+        }
+        switch (downloadCompression) {
+            case "gzip":
+                // OkHttp negotiates and decodes gzip transparently
+                break;
+            case "br":
+                builder.addInterceptor(BrotliInterceptor.INSTANCE);
+                break;
+            case "none":
+                builder.addInterceptor(
+                        chain ->
+                                chain.proceed(
+                                        chain.request()
+                                                .newBuilder()
+                                                .header("Accept-Encoding", "identity")
+                                                .build()));
+                break;
+            default:
+                throw new GradleException(
+                        "Unsupported download compression '"
+                                + downloadCompression
+                                + "', expected one of gzip, br, none");
+        }
+        List<Protocol> preferred = getPreferredProtocols();
+        if (!preferred.isEmpty()) {
+            try {
+                builder.protocols(preferred);
+            } catch (IllegalArgumentException e) {
+                throw new GradleException("Invalid HTTP protocols " + preferred, e);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Client for plain http calls derived from {@code client}, sharing its connection pool and
+     * dispatcher. In HTTP/2 mode it speaks h2c, since there is no ALPN without TLS.
+     */
+    public OkHttpClient createCleartextClient(OkHttpClient client) {
+        if (!HTTP_2.equals(httpVersion)) {
+            return client;
+        }
+        return client.newBuilder().protocols(List.of(Protocol.H2_PRIOR_KNOWLEDGE)).build();
+    }
+
+    private List<Protocol> getPreferredProtocols() throws GradleException {
+        if (!HTTP_AUTO.equals(httpVersion) && !protocols.isEmpty()) {
+            throw new GradleException(
+                    "Set either protocols or httpVersion, not both (protocols "
+                            + protocols
+                            + ", httpVersion "
+                            + httpVersion
+                            + ")");
+        }
+        switch (httpVersion) {
+            case HTTP_AUTO:
+                return parseProtocols();
+            case HTTP_1_1:
+                return List.of(Protocol.HTTP_1_1);
+            case HTTP_2:
+                return List.of(Protocol.HTTP_2, Protocol.HTTP_1_1);
+            default:
+                throw new GradleException(
+                        "Unsupported httpVersion '"
+                                + httpVersion
+                                + "', expected one of auto, 1.1, 2");
+        }
+    }
+
+    private List<Protocol> parseProtocols() throws GradleException {
+        List<Protocol> result = new ArrayList<>();
+        for (String protocol : protocols) {
+            try {
+                result.add(Protocol.get(protocol));
+            } catch (IOException e) {
+                throw new GradleException("Unsupported HTTP protocol: " + protocol, e);
+            }
+        }
+        return result;
+    }
+}
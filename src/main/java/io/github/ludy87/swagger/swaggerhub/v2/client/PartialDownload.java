@@ -0,0 +1,155 @@
+/* Copyright 2025 Ludy87
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.ludy87.swagger.swaggerhub.v2.client;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSink;
+import okio.Okio;
+
+/**
+ * Data of an interrupted download, kept in {@code <output>.part} next to the output file together
+ * with the validator of the response it came from. A later attempt, in the same or a later build,
+ * continues it with a {@code Range} request guarded by {@code If-Range}, so that the server sends
+ * the whole definition again if it changed in the meantime.
+ *
+ * <p>Only uncompressed responses can be continued, since ranges of a compressed response refer to
+ * the compressed bytes. {@link SwaggerHubClient} therefore asks for uncompressed definitions unless
+ * resumable downloads are turned off.
+ */
+final class PartialDownload {
+    private static final Logger LOGGER = Logging.getLogger(PartialDownload.class);
+    private static final int HTTP_PARTIAL_CONTENT = 206;
+
+    private final Path partFile;
+    private final Path validatorFile;
+
+    PartialDownload(Path outputFile) {
+        Path absolute = outputFile.toAbsolutePath();
+        this.partFile = absolute.resolveSibling(absolute.getFileName() + ".part");
+        this.validatorFile = absolute.resolveSibling(absolute.getFileName() + ".part.validator");
+    }
+
+    /** Adds {@code Range} and {@code If-Range} headers if there is data to continue. */
+    Request resume(Request request) {
+        long offset;
+        String validator;
+        try {
+            offset = Files.isRegularFile(partFile) ? Files.size(partFile) : 0;
+            validator =
+                    Files.isRegularFile(validatorFile)
+                            ? Files.readString(validatorFile, StandardCharsets.UTF_8)
+                            : null;
+        } catch (IOException e) {
+            return request;
+        }
+        if (offset == 0 || validator == null || validator.isEmpty()) {
+            return request;
+        }
+        LOGGER.info("Continuing download of {} at byte {}", request.url(), offset);
+        return request.newBuilder()
+                .header("Range", "bytes=" + offset + "-")
+                .header("If-Range", validator)
+                .header("Accept-Encoding", "identity")
+                .build();
+    }
+
+    /**
+     * Writes the body of a successful response, appended to the data so far for {@code 206 Partial
+     * Content}. Whatever was received is kept if the transfer breaks off.
+     */
+    void write(Response response) throws IOException {
+        ResponseBody body = response.body();
+        boolean append = response.code() == HTTP_PARTIAL_CONTENT;
+        if (append) {
+            long offset = Files.isRegularFile(partFile) ? Files.size(partFile) : 0;
+            String contentRange = response.header("Content-Range");
+            if (contentRange == null
+                    || !contentRange.startsWith("bytes " + offset + "-")
+                    || isEncoded(response)) {
+                discard();
+                throw new IOException(
+                        "Unexpected partial response ("
+                                + contentRange
+                                + ") to a download continued at byte "
+                                + offset);
+            }
+        } else {
+            String validator = validatorOf(response);
+            if (validator != null) {
+                Files.createDirectories(validatorFile.getParent());
+                Files.writeString(validatorFile, validator, StandardCharsets.UTF_8);
+            } else {
+                Files.deleteIfExists(validatorFile);
+            }
+        }
+
+        Files.createDirectories(partFile.getParent());
+        try (BufferedSink sink =
+                Okio.buffer(
+                        append
+                                ? Okio.sink(
+                                        partFile,
+                                        StandardOpenOption.CREATE,
+                                        StandardOpenOption.APPEND)
+                                : Okio.sink(partFile))) {
+            sink.writeAll(body.source());
+        }
+    }
+
+    /** Moves the complete download to {@code outputFile}. */
+    void complete(Path outputFile) throws IOException {
+        AtomicFiles.move(partFile, outputFile);
+        Files.deleteIfExists(validatorFile);
+    }
+
+    void discard() throws IOException {
+        Files.deleteIfExists(partFile);
+        Files.deleteIfExists(validatorFile);
+    }
+
+    /**
+     * A strong ETag, or else Last-Modified, of an uncompressed response; {@code null} if the
+     * response cannot be continued.
+     */
+    private static String validatorOf(Response response) {
+        if (isEncoded(response)) {
+            return null;
+        }
+        String eTag = response.header("ETag");
+        if (eTag != null && !eTag.startsWith("W/")) {
+            return eTag;
+        }
+        return response.header("Last-Modified");
+    }
+
+    /** OkHttp removes the header when it decompresses, so look at the response as received. */
+    private static boolean isEncoded(Response response) {
+        Response received =
+                response.networkResponse() != null ? response.networkResponse() : response;
+        String encoding = received.header("Content-Encoding");
+        return encoding != null && !"identity".equalsIgnoreCase(encoding);
+    }
+}
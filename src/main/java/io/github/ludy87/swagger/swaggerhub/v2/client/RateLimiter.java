@@ -0,0 +1,97 @@
+/* Copyright 2025 Ludy87
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.ludy87.swagger.swaggerhub.v2.client;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket limiting the calls made to one SwaggerHub host with one token. Up to {@code burst}
+ * calls pass immediately, after that calls are spaced out to {@code requestsPerSecond}. Callers
+ * that have to wait reserve their slot first, so waiting callers are served in arrival order.
+ */
+public class RateLimiter {
+    private final double permitsPerNano;
+    private final double burst;
+    private double storedPermits;
+    private long lastRefill;
+
+    private final AtomicLong acquisitions = new AtomicLong();
+    private final AtomicLong delayedAcquisitions = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    public RateLimiter(double requestsPerSecond, int burst) {
+        if (requestsPerSecond <= 0) {
+            throw new IllegalArgumentException("requestsPerSecond must be positive");
+        }
+        this.permitsPerNano = requestsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.burst = Math.max(1, burst);
+        this.storedPermits = this.burst;
+        this.lastRefill = System.nanoTime();
+    }
+
+    /** Blocks until the next call may be made. */
+    public void acquire() throws InterruptedIOException {
+        long waitNanos = reserve();
+        if (waitNanos <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the rate limiter");
+        }
+    }
+
+    /**
+     * Takes a permit and returns how long the caller has to wait before using it, without blocking.
+     */
+    public long reserve() {
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            storedPermits = Math.min(burst, storedPermits + (now - lastRefill) * permitsPerNano);
+            lastRefill = now;
+            storedPermits -= 1;
+            waitNanos = storedPermits >= 0 ? 0 : (long) Math.ceil(-storedPermits / permitsPerNano);
+        }
+        acquisitions.incrementAndGet();
+        if (waitNanos > 0) {
+            delayedAcquisitions.incrementAndGet();
+            totalWaitNanos.addAndGet(waitNanos);
+            maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+        }
+        return waitNanos;
+    }
+
+    public long getAcquisitions() {
+        return acquisitions.get();
+    }
+
+    public long getDelayedAcquisitions() {
+        return delayedAcquisitions.get();
+    }
+
+    public long getTotalWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get());
+    }
+
+    public long getMaxWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get());
+    }
+}
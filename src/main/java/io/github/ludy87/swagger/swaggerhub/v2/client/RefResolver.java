@@ -0,0 +1,307 @@
+/* Copyright 2025 Ludy87
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.ludy87.swagger.swaggerhub.v2.client;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Predicate;
+
+import org.gradle.api.GradleException;
+
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.yaml.YAMLMapper;
+
+/**
+ * Resolves the external {@code $ref}s of unresolved definitions in the plugin instead of asking
+ * SwaggerHub for {@code resolved=true}. Referenced documents, typically domains, are fetched
+ * concurrently and kept for the lifetime of the resolver, so a domain shared by many APIs is only
+ * downloaded once per build. They are kept per token, a document fetched with one token is never
+ * handed to a client using another one.
+ *
+ * <p>Each external reference is replaced with a copy of its target, in which references local to
+ * the referenced document are resolved as well. References within the definition itself are left as
+ * they are. A reference leading back into a target that is already being inlined stays a reference,
+ * made absolute if it pointed into another document.
+ */
+public class RefResolver {
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final ObjectMapper YAML = new YAMLMapper();
+    private static final String REF = "$ref";
+
+    private final Map<String, CompletableFuture<JsonNode>> documents = new ConcurrentHashMap<>();
+
+    /** Downloads the unresolved definition and returns it with all external references inlined. */
+    public JsonNode getResolvedDefinition(
+            SwaggerHubClient client, SwaggerHubRequest swaggerHubRequest) throws GradleException {
+        SwaggerHubRequest unresolved =
+                SwaggerHubRequest.builder()
+                        .api(swaggerHubRequest.getApi())
+                        .owner(swaggerHubRequest.getOwner())
+                        .version(swaggerHubRequest.getVersion())
+                        .format("json")
+                        .resolved(false)
+                        .onPremise(swaggerHubRequest.getOnPremise())
+                        .onPremiseAPISuffix(swaggerHubRequest.getOnPremiseAPISuffix())
+                        .build();
+        String definition = client.getDefinition(unresolved);
+        JsonNode root;
+        try {
+            root = parse(definition);
+        } catch (IOException e) {
+            throw new GradleException(
+                    "Could not parse API definition " + describe(swaggerHubRequest), e);
+        }
+        return resolve(client, root, client.getDownloadUrl(unresolved).toString());
+    }
+
+    /** Resolves the external references of {@code root}, a document loaded from {@code url}. */
+    public JsonNode resolve(SwaggerHubClient client, JsonNode root, String url)
+            throws GradleException {
+        prefetch(client, root, url);
+        return inline(client, root, url, true, new ArrayDeque<>());
+    }
+
+    private void prefetch(SwaggerHubClient client, JsonNode root, String url)
+            throws GradleException {
+        Set<String> referenced = new LinkedHashSet<>();
+        collectDocuments(root, url, referenced);
+        loadAll(client, referenced, documentUrl -> true);
+    }
+
+    /**
+     * Loads {@code urls} and, transitively, the documents they reference that {@code follow}
+     * accepts, one level of references at a time with all documents of a level in flight together.
+     *
+     * @return the loaded documents by URL
+     */
+    public Map<String, JsonNode> loadAll(
+            SwaggerHubClient client, Collection<String> urls, Predicate<String> follow)
+            throws GradleException {
+        Map<String, JsonNode> loaded = new LinkedHashMap<>();
+        Set<String> pending = new LinkedHashSet<>(urls);
+        pending.removeIf(follow.negate());
+        while (!pending.isEmpty()) {
+            Map<String, CompletableFuture<JsonNode>> loading = new LinkedHashMap<>();
+            for (String documentUrl : pending) {
+                loading.put(documentUrl, load(client, documentUrl));
+            }
+            pending = new LinkedHashSet<>();
+            for (Map.Entry<String, CompletableFuture<JsonNode>> entry : loading.entrySet()) {
+                JsonNode document = await(entry.getKey(), entry.getValue());
+                loaded.put(entry.getKey(), document);
+                collectDocuments(document, entry.getKey(), pending);
+            }
+            pending.removeIf(documentUrl -> loaded.containsKey(documentUrl));
+            pending.removeIf(follow.negate());
+        }
+        return loaded;
+    }
+
+    private CompletableFuture<JsonNode> load(SwaggerHubClient client, String url) {
+        String key = key(client, url);
+        CompletableFuture<JsonNode> document =
+                documents.computeIfAbsent(
+                        key,
+                        ignored ->
+                                client.getReferencedDocumentAsync(url)
+                                        .thenApply(
+                                                content -> {
+                                                    try {
+                                                        return parse(content);
+                                                    } catch (IOException e) {
+                                                        throw new GradleException(
+                                                                "Could not parse " + url, e);
+                                                    }
+                                                }));
+        // a later definition may try again
+        document.whenComplete(
+                (result, failure) -> {
+                    if (failure != null) {
+                        documents.remove(key, document);
+                    }
+                });
+        return document;
+    }
+
+    private static JsonNode await(String url, CompletableFuture<JsonNode> document)
+            throws GradleException {
+        try {
+            return document.get();
+        } catch (InterruptedException e) {
+            document.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new GradleException("Interrupted while fetching " + url, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            throw new GradleException(
+                    "Could not fetch referenced document " + url + ": " + cause.getMessage(),
+                    cause);
+        }
+    }
+
+    /** Adds the documents referenced from {@code node}, resolved against {@code baseUrl}. */
+    static void collectDocuments(JsonNode node, String baseUrl, Set<String> result) {
+        if (node.isObject()) {
+            JsonNode ref = node.get(REF);
+            if (ref != null && ref.isTextual() && !ref.asText().startsWith("#")) {
+                result.add(documentUrl(baseUrl, ref.asText()));
+            }
+        }
+        for (JsonNode child : node) {
+            collectDocuments(child, baseUrl, result);
+        }
+    }
+
+    /**
+     * @param root whether {@code node} belongs to the definition being resolved, whose own
+     *     references are kept
+     * @param path targets being inlined, to stop at cycles
+     */
+    private JsonNode inline(
+            SwaggerHubClient client,
+            JsonNode node,
+            String baseUrl,
+            boolean root,
+            Deque<String> path)
+            throws GradleException {
+        if (node.isObject()) {
+            JsonNode ref = node.get(REF);
+            if (ref != null && ref.isTextual()) {
+                String value = ref.asText();
+                if (root && value.startsWith("#")) {
+                    return node;
+                }
+                String target = documentUrl(baseUrl, value) + "#" + fragment(value);
+                if (path.contains(target)) {
+                    ObjectNode reference = JSON.createObjectNode();
+                    reference.put(REF, target);
+                    return reference;
+                }
+                path.push(target);
+                try {
+                    String documentUrl = documentUrl(baseUrl, value);
+                    return inline(
+                            client,
+                            lookup(client, documentUrl, fragment(value), value),
+                            documentUrl,
+                            false,
+                            path);
+                } finally {
+                    path.pop();
+                }
+            }
+            ObjectNode result = JSON.createObjectNode();
+            for (Map.Entry<String, JsonNode> field : node.properties()) {
+                result.set(field.getKey(), inline(client, field.getValue(), baseUrl, root, path));
+            }
+            return result;
+        }
+        if (node.isArray()) {
+            ArrayNode result = JSON.createArrayNode();
+            for (JsonNode element : node) {
+                result.add(inline(client, element, baseUrl, root, path));
+            }
+            return result;
+        }
+        return node;
+    }
+
+    private JsonNode lookup(
+            SwaggerHubClient client, String documentUrl, String fragment, String ref)
+            throws GradleException {
+        CompletableFuture<JsonNode> document = documents.get(key(client, documentUrl));
+        if (document == null) {
+            throw new GradleException("Referenced document " + documentUrl + " was not loaded");
+        }
+        JsonNode target =
+                fragment.isEmpty()
+                        ? await(documentUrl, document)
+                        : await(documentUrl, document).at(JsonPointer.compile(fragment));
+        if (target.isMissingNode()) {
+            throw new GradleException("Could not resolve $ref " + ref + " in " + documentUrl);
+        }
+        return target;
+    }
+
+    /** Documents visible to one token are not served to clients using another one. */
+    private static String key(SwaggerHubClient client, String url) {
+        return client.getToken() != null
+                ? url + " #" + SwaggerHubClient.tokenDigest(client.getToken())
+                : url;
+    }
+
+    static String documentUrl(String baseUrl, String ref) {
+        int hash = ref.indexOf('#');
+        String location = hash >= 0 ? ref.substring(0, hash) : ref;
+        if (location.isEmpty()) {
+            return stripFragment(baseUrl);
+        }
+        try {
+            return stripFragment(new URI(baseUrl).resolve(new URI(location)).toString());
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            throw new GradleException("Invalid $ref " + ref, e);
+        }
+    }
+
+    private static String fragment(String ref) {
+        int hash = ref.indexOf('#');
+        if (hash < 0) {
+            return "";
+        }
+        String fragment = ref.substring(hash + 1);
+        try {
+            // decodes percent-encoded characters such as %7B
+            return new URI("#" + fragment).getFragment();
+        } catch (URISyntaxException e) {
+            // not a valid URI fragment, take it literally
+            return fragment;
+        }
+    }
+
+    private static String stripFragment(String url) {
+        int hash = url.indexOf('#');
+        return hash >= 0 ? url.substring(0, hash) : url;
+    }
+
+    private static JsonNode parse(String content) throws IOException {
+        String trimmed = content.stripLeading();
+        return trimmed.startsWith("{") || trimmed.startsWith("[")
+                ? JSON.readTree(content)
+                : YAML.readTree(content);
+    }
+
+    private static String describe(SwaggerHubRequest swaggerHubRequest) {
+        return swaggerHubRequest.getOwner()
+                + "/"
+                + swaggerHubRequest.getApi()
+                + "/"
+                + swaggerHubRequest.getVersion();
+    }
+}
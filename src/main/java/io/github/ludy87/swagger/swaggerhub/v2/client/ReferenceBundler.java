@@ -0,0 +1,265 @@
+/* Copyright 2025 Ludy87
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.ludy87.swagger.swaggerhub.v2.client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.gradle.api.GradleException;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.yaml.YAMLMapper;
+
+import okhttp3.HttpUrl;
+
+/**
+ * Completes downloaded definitions into an offline bundle. The APIs and domains they reference on
+ * the SwaggerHub host, directly or through other referenced documents, are written to one directory
+ * as {@code <apis|domains>/<owner>/<name>/<version>.<format>}, and the references are rewritten to
+ * relative paths pointing there.
+ *
+ * <p>The dependency graph is walked one level at a time with every document of a level fetched
+ * concurrently, and each document is fetched once however many definitions reference it. A
+ * definition bundled by an earlier build still has its relative references, which are mapped back
+ * to the documents they stand for.
+ */
+public class ReferenceBundler {
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final ObjectMapper YAML = new YAMLMapper();
+    private static final String REF = "$ref";
+    private static final List<String> KINDS = List.of("apis", "domains");
+
+    private final SwaggerHubClient client;
+    private final RefResolver resolver;
+    private final Path directory;
+    private final String format;
+
+    /**
+     * @param resolver loads the referenced documents, sharing them with other users of the resolver
+     * @param format {@code json} or {@code yaml}, the format the referenced documents are written
+     *     in
+     */
+    public ReferenceBundler(
+            SwaggerHubClient client, RefResolver resolver, Path directory, String format) {
+        this.client = client;
+        this.resolver = resolver;
+        this.directory = directory.toAbsolutePath().normalize();
+        this.format = format;
+    }
+
+    /**
+     * @param definitions downloaded definition files and their formats
+     * @return the number of referenced documents written
+     */
+    public int bundle(Map<Path, String> definitions) throws GradleException {
+        Map<Path, JsonNode> parsed = new LinkedHashMap<>();
+        Set<String> referenced = new LinkedHashSet<>();
+        for (Map.Entry<Path, String> definition : definitions.entrySet()) {
+            Path file = definition.getKey();
+            JsonNode root;
+            try (InputStream in = Files.newInputStream(file)) {
+                root = mapper(definition.getValue()).readTree(in);
+            } catch (IOException e) {
+                throw new GradleException(
+                        "Could not read API definition " + file + ": " + e.getMessage(), e);
+            }
+            parsed.put(file, root);
+            collectReferences(root, null, file, referenced);
+        }
+
+        Map<String, JsonNode> documents =
+                resolver.loadAll(client, referenced, url -> locate(HttpUrl.parse(url)) != null);
+        for (Map.Entry<String, JsonNode> document : documents.entrySet()) {
+            Path file = fileFor(locate(HttpUrl.parse(document.getKey())));
+            // the resolver keeps the original for other definitions
+            JsonNode copy = document.getValue().deepCopy();
+            rewrite(copy, document.getKey(), file);
+            write(copy, file, format);
+        }
+        for (Map.Entry<Path, JsonNode> definition : parsed.entrySet()) {
+            if (rewrite(definition.getValue(), null, definition.getKey())) {
+                write(
+                        definition.getValue(),
+                        definition.getKey(),
+                        definitions.get(definition.getKey()));
+            }
+        }
+        return documents.size();
+    }
+
+    private void collectReferences(JsonNode node, String baseUrl, Path file, Set<String> result) {
+        if (node.isObject()) {
+            JsonNode ref = node.get(REF);
+            if (ref != null && ref.isTextual()) {
+                String location = locate(ref.asText(), baseUrl, file);
+                if (location != null) {
+                    result.add(urlFor(location));
+                }
+            }
+        }
+        for (JsonNode child : node) {
+            collectReferences(child, baseUrl, file, result);
+        }
+    }
+
+    /**
+     * Points the references to bundled documents at their files, relative to {@code file}.
+     *
+     * @return whether a reference was changed
+     */
+    private boolean rewrite(JsonNode node, String baseUrl, Path file) {
+        boolean changed = false;
+        if (node.isObject()) {
+            JsonNode ref = node.get(REF);
+            if (ref != null && ref.isTextual()) {
+                String value = ref.asText();
+                String location = locate(value, baseUrl, file);
+                if (location != null) {
+                    int hash = value.indexOf('#');
+                    String target =
+                            file.toAbsolutePath()
+                                            .getParent()
+                                            .relativize(fileFor(location))
+                                            .toString()
+                                            .replace('\\', '/')
+                                    + (hash >= 0 ? value.substring(hash) : "");
+                    if (!target.equals(value)) {
+                        ((ObjectNode) node).put(REF, target);
+                        changed = true;
+                    }
+                }
+            }
+        }
+        for (JsonNode child : node) {
+            changed |= rewrite(child, baseUrl, file);
+        }
+        return changed;
+    }
+
+    /**
+     * @param baseUrl URL of the document containing the reference, {@code null} for a downloaded
+     *     definition, whose relative references are paths into the bundle
+     * @return {@code <kind>/<owner>/<name>/<version>} of the referenced document, or {@code null}
+     *     if it is not an API or domain on the SwaggerHub host
+     */
+    private String locate(String ref, String baseUrl, Path file) {
+        if (ref.startsWith("#")) {
+            return null;
+        }
+        int hash = ref.indexOf('#');
+        String document = hash >= 0 ? ref.substring(0, hash) : ref;
+        HttpUrl url = HttpUrl.parse(document);
+        if (url == null && baseUrl != null) {
+            HttpUrl base = HttpUrl.parse(baseUrl);
+            url = base != null ? base.resolve(document) : null;
+        }
+        if (url != null) {
+            return locate(url);
+        }
+        if (baseUrl != null) {
+            return null;
+        }
+        try {
+            Path target = file.toAbsolutePath().getParent().resolve(document).normalize();
+            if (!target.startsWith(directory)) {
+                return null;
+            }
+            String location = directory.relativize(target).toString().replace('\\', '/');
+            int extension = location.lastIndexOf('.');
+            return extension > location.lastIndexOf('/')
+                    ? validLocation(location.substring(0, extension))
+                    : null;
+        } catch (InvalidPathException e) {
+            return null;
+        }
+    }
+
+    private String locate(HttpUrl url) {
+        if (url == null || !url.host().equalsIgnoreCase(client.getHost())) {
+            return null;
+        }
+        List<String> segments = url.pathSegments();
+        for (int i = 0; i + 3 < segments.size(); i++) {
+            if (KINDS.contains(segments.get(i))) {
+                // the segments are decoded, %2F..%2F must not leave the directory
+                return validLocation(String.join("/", segments.subList(i, i + 4)));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return {@code location} if it has four segments that all stay within their directory
+     */
+    private static String validLocation(String location) {
+        String[] segments = location.split("/", -1);
+        if (segments.length != 4 || !KINDS.contains(segments[0])) {
+            return null;
+        }
+        for (String segment : segments) {
+            if (segment.isEmpty()
+                    || segment.equals(".")
+                    || segment.contains("..")
+                    || segment.contains("\\")) {
+                return null;
+            }
+        }
+        return location;
+    }
+
+    private String urlFor(String location) {
+        String[] segments = location.split("/");
+        return client.getRegistryUrl(segments[0])
+                .addPathSegment(segments[1])
+                .addPathSegment(segments[2])
+                .addPathSegment(segments[3])
+                .build()
+                .toString();
+    }
+
+    private Path fileFor(String location) throws GradleException {
+        Path file =
+                directory
+                        .resolve(location + ("yaml".equalsIgnoreCase(format) ? ".yaml" : ".json"))
+                        .normalize();
+        if (!file.startsWith(directory)) {
+            throw new GradleException(
+                    "Referenced document " + location + " would be written outside " + directory);
+        }
+        return file;
+    }
+
+    private static ObjectMapper mapper(String format) {
+        return "yaml".equalsIgnoreCase(format) ? YAML : JSON;
+    }
+
+    private static void write(JsonNode document, Path file, String format) throws GradleException {
+        try {
+            FormatConverter.write(document, file, format);
+        } catch (IOException e) {
+            throw new GradleException("Could not write " + file + ": " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,368 @@
+/* Copyright 2025 Ludy87
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.ludy87.swagger.swaggerhub.v2.client;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import lombok.Value;
+
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.HttpUrl;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Timings, bytes and status codes of the calls made by an OkHttp client, aggregated per task and
+ * host. Install {@link #eventListenerFactory()} on the client and {@link Tag} the requests with the
+ * task they are made for. Bytes are counted as transferred, before decompression.
+ */
+public class RequestMetrics {
+    /** Task and attempt a request is made for, and how long it waited for the rate limiter. */
+    @Value
+    public static class Tag {
+        String task;
+        int attempt;
+        long rateLimitWaitNanos;
+    }
+
+    private static final String NO_TASK = "-";
+
+    private final Map<String, Stats> stats = new ConcurrentHashMap<>();
+
+    public EventListener.Factory eventListenerFactory() {
+        return CallListener::new;
+    }
+
+    /** Copies of the statistics recorded so far, ordered by task and host. */
+    public List<Stats> getStats() {
+        List<Stats> copies = new ArrayList<>();
+        for (Stats stat : stats.values()) {
+            copies.add(stat.copy());
+        }
+        copies.sort(Comparator.comparing(Stats::getTask).thenComparing(Stats::getHost));
+        return copies;
+    }
+
+    private Stats statsFor(String task, String host) {
+        return stats.computeIfAbsent(task + " " + host, ignored -> new Stats(task, host));
+    }
+
+    /** Calls made by one task to one host. Durations are in milliseconds. */
+    public static class Stats {
+        private final String task;
+        private final String host;
+        private long calls;
+        private long failures;
+        private long retries;
+        private long connections;
+        private long bytesSent;
+        private long bytesReceived;
+        private long dnsNanos;
+        private long connectNanos;
+        private long tlsNanos;
+        private long rateLimitWaitNanos;
+        private long timeToFirstByteNanos;
+        private long maxTimeToFirstByteNanos;
+        private long transferNanos;
+        private long callNanos;
+        private long maxCallNanos;
+        private final SortedMap<Integer, Long> statusCodes = new TreeMap<>();
+
+        Stats(String task, String host) {
+            this.task = task;
+            this.host = host;
+        }
+
+        private synchronized void record(CallListener call) {
+            calls++;
+            if (call.failed) {
+                failures++;
+            }
+            if (call.tag != null && call.tag.getAttempt() > 1) {
+                retries++;
+            }
+            if (call.tag != null) {
+                rateLimitWaitNanos += call.tag.getRateLimitWaitNanos();
+            }
+            connections += call.connections;
+            bytesSent += call.bytesSent;
+            bytesReceived += call.bytesReceived;
+            dnsNanos += call.dnsNanos;
+            connectNanos += call.connectNanos;
+            tlsNanos += call.tlsNanos;
+            timeToFirstByteNanos += call.timeToFirstByteNanos;
+            maxTimeToFirstByteNanos = Math.max(maxTimeToFirstByteNanos, call.timeToFirstByteNanos);
+            transferNanos += call.transferNanos;
+            callNanos += call.callNanos;
+            maxCallNanos = Math.max(maxCallNanos, call.callNanos);
+            for (Integer statusCode : call.statusCodes) {
+                statusCodes.merge(statusCode, 1L, Long::sum);
+            }
+        }
+
+        private synchronized Stats copy() {
+            Stats copy = new Stats(task, host);
+            copy.calls = calls;
+            copy.failures = failures;
+            copy.retries = retries;
+            copy.connections = connections;
+            copy.bytesSent = bytesSent;
+            copy.bytesReceived = bytesReceived;
+            copy.dnsNanos = dnsNanos;
+            copy.connectNanos = connectNanos;
+            copy.tlsNanos = tlsNanos;
+            copy.rateLimitWaitNanos = rateLimitWaitNanos;
+            copy.timeToFirstByteNanos = timeToFirstByteNanos;
+            copy.maxTimeToFirstByteNanos = maxTimeToFirstByteNanos;
+            copy.transferNanos = transferNanos;
+            copy.callNanos = callNanos;
+            copy.maxCallNanos = maxCallNanos;
+            copy.statusCodes.putAll(statusCodes);
+            return copy;
+        }
+
+        public String getTask() {
+            return task;
+        }
+
+        public String getHost() {
+            return host;
+        }
+
+        public long getCalls() {
+            return calls;
+        }
+
+        /** Calls that ended without a response, such as connection failures. */
+        public long getFailures() {
+            return failures;
+        }
+
+        /** Calls repeating an earlier attempt. */
+        public long getRetries() {
+            return retries;
+        }
+
+        /** Connections opened, calls on pooled connections open none. */
+        public long getConnections() {
+            return connections;
+        }
+
+        public long getBytesSent() {
+            return bytesSent;
+        }
+
+        public long getBytesReceived() {
+            return bytesReceived;
+        }
+
+        public long getDnsMillis() {
+            return millis(dnsNanos);
+        }
+
+        /** Time to open connections, including the TLS handshake. */
+        public long getConnectMillis() {
+            return millis(connectNanos);
+        }
+
+        public long getTlsMillis() {
+            return millis(tlsNanos);
+        }
+
+        public long getRateLimitWaitMillis() {
+            return millis(rateLimitWaitNanos);
+        }
+
+        /** Time from sending the request headers to receiving the response headers. */
+        public long getTimeToFirstByteMillis() {
+            return millis(timeToFirstByteNanos);
+        }
+
+        public long getMaxTimeToFirstByteMillis() {
+            return millis(maxTimeToFirstByteNanos);
+        }
+
+        /** Time spent sending request bodies and reading response bodies. */
+        public long getTransferMillis() {
+            return millis(transferNanos);
+        }
+
+        public long getCallMillis() {
+            return millis(callNanos);
+        }
+
+        public long getMaxCallMillis() {
+            return millis(maxCallNanos);
+        }
+
+        /** Number of responses per status code. */
+        public SortedMap<Integer, Long> getStatusCodes() {
+            return statusCodes;
+        }
+
+        private static long millis(long nanos) {
+            return TimeUnit.NANOSECONDS.toMillis(nanos);
+        }
+    }
+
+    /** Collects the events of one call, which OkHttp delivers in order. */
+    private class CallListener extends EventListener {
+        private final Tag tag;
+        private final String host;
+        private boolean failed;
+        private final List<Integer> statusCodes = new ArrayList<>(1);
+        private long connections;
+        private long bytesSent;
+        private long bytesReceived;
+        private long dnsNanos;
+        private long connectNanos;
+        private long tlsNanos;
+        private long timeToFirstByteNanos;
+        private long transferNanos;
+        private long callNanos;
+
+        private long callStart;
+        private long dnsStart;
+        private long connectStart;
+        private long secureConnectStart;
+        private long requestHeadersStart;
+        private long bodyStart;
+
+        CallListener(Call call) {
+            Request request = call.request();
+            HttpUrl url = request.url();
+            this.tag = request.tag(Tag.class);
+            this.host = url.host() + ":" + url.port();
+        }
+
+        @Override
+        public void callStart(Call call) {
+            callStart = System.nanoTime();
+        }
+
+        @Override
+        public void dnsStart(Call call, String domainName) {
+            dnsStart = System.nanoTime();
+        }
+
+        @Override
+        public void dnsEnd(Call call, String domainName, List<InetAddress> inetAddressList) {
+            dnsNanos += System.nanoTime() - dnsStart;
+        }
+
+        @Override
+        public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+            connectStart = System.nanoTime();
+        }
+
+        @Override
+        public void secureConnectStart(Call call) {
+            secureConnectStart = System.nanoTime();
+        }
+
+        @Override
+        public void secureConnectEnd(Call call, Handshake handshake) {
+            tlsNanos += System.nanoTime() - secureConnectStart;
+        }
+
+        @Override
+        public void connectEnd(
+                Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+            connections++;
+            connectNanos += System.nanoTime() - connectStart;
+        }
+
+        @Override
+        public void connectFailed(
+                Call call,
+                InetSocketAddress inetSocketAddress,
+                Proxy proxy,
+                Protocol protocol,
+                IOException ioe) {
+            connectNanos += System.nanoTime() - connectStart;
+        }
+
+        @Override
+        public void requestHeadersStart(Call call) {
+            requestHeadersStart = System.nanoTime();
+        }
+
+        @Override
+        public void requestBodyStart(Call call) {
+            bodyStart = System.nanoTime();
+        }
+
+        @Override
+        public void requestBodyEnd(Call call, long byteCount) {
+            bytesSent += byteCount;
+            transferNanos += System.nanoTime() - bodyStart;
+        }
+
+        @Override
+        public void responseHeadersStart(Call call) {
+            if (requestHeadersStart > 0) {
+                timeToFirstByteNanos = System.nanoTime() - requestHeadersStart;
+            }
+        }
+
+        @Override
+        public void responseHeadersEnd(Call call, Response response) {
+            // one call can see several responses, e.g. redirects OkHttp follows
+            statusCodes.add(response.code());
+        }
+
+        @Override
+        public void responseBodyStart(Call call) {
+            bodyStart = System.nanoTime();
+        }
+
+        @Override
+        public void responseBodyEnd(Call call, long byteCount) {
+            bytesReceived += byteCount;
+            transferNanos += System.nanoTime() - bodyStart;
+        }
+
+        @Override
+        public void callEnd(Call call) {
+            finish();
+        }
+
+        @Override
+        public void callFailed(Call call, IOException ioe) {
+            failed = true;
+            finish();
+        }
+
+        private void finish() {
+            callNanos = System.nanoTime() - callStart;
+            statsFor(tag != null && tag.getTask() != null ? tag.getTask() : NO_TASK, host)
+                    .record(this);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/* Copyright 2025 Ludy87
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.ludy87.swagger.swaggerhub.v2.client;
+
+import java.io.Serializable;
+import java.net.ConnectException;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * When and how long to wait before a failed SwaggerHub call is repeated. Delays use exponential
+ * backoff with full jitter, unless the server asks for a specific delay with {@code Retry-After}.
+ *
+ * <p>Requests that are not idempotent (definition uploads) are only repeated when the server cannot
+ * have processed them: the connection could not be established or the call was rate limited (429).
+ * {@link #isRetryNonIdempotent()} lifts that restriction.
+ */
+@Getter
+@Builder
+@ToString
+public class RetryPolicy implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final int TOO_MANY_REQUESTS = 429;
+
+    @Builder.Default private final int maxAttempts = 3;
+    @Builder.Default private final long backoffBaseMillis = 500;
+    @Builder.Default private final long backoffCapMillis = 30_000;
+
+    @Builder.Default
+    private final List<Integer> retryableStatuses =
+            new ArrayList<>(Arrays.asList(429, 502, 503, 504));
+
+    @Builder.Default private final boolean honorRetryAfter = true;
+    @Builder.Default private final boolean retryNonIdempotent = false;
+
+    /** A policy that never repeats a call. */
+    public static RetryPolicy none() {
+        return RetryPolicy.builder().maxAttempts(1).build();
+    }
+
+    public boolean shouldRetry(int attempt, int status, boolean idempotent) {
+        if (attempt >= maxAttempts || !retryableStatuses.contains(status)) {
+            return false;
+        }
+        return idempotent || retryNonIdempotent || status == TOO_MANY_REQUESTS;
+    }
+
+    public boolean shouldRetry(int attempt, Exception failure, boolean idempotent) {
+        if (attempt >= maxAttempts) {
+            return false;
+        }
+        return idempotent
+                || retryNonIdempotent
+                || failure instanceof ConnectException
+                || failure instanceof UnknownHostException;
+    }
+
+    /** Delay before the next attempt, {@code attempt} being the number of the failed one. */
+    public long delayMillis(int attempt, String retryAfter) {
+        if (honorRetryAfter && retryAfter != null) {
+            Long requested = parseRetryAfter(retryAfter);
+            if (requested != null) {
+                return Math.min(Math.max(requested, 0), backoffCapMillis);
+            }
+        }
+        long ceiling =
+                (long) Math.min(backoffCapMillis, backoffBaseMillis * Math.pow(2, attempt - 1));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private static Long parseRetryAfter(String retryAfter) {
+        try {
+            return Long.parseLong(retryAfter.trim()) * 1000;
+        } catch (NumberFormatException e) {
+            // not delta-seconds, try an HTTP date
+        }
+        try {
+            ZonedDateTime date =
+                    ZonedDateTime.parse(retryAfter.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+            return Duration.between(ZonedDateTime.now(date.getZone()), date).toMillis();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -32,27 +32,44 @@
 package io.github.ludy87.swagger.swaggerhub.v2.client;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
 
 import org.gradle.api.GradleException;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
 
 import lombok.Builder;
 import lombok.Getter;
 import lombok.NonNull;
 
+import okhttp3.Call;
+import okhttp3.Callback;
 import okhttp3.HttpUrl;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
+import okhttp3.ResponseBody;
 
 @Getter
-@Builder
+@Builder(toBuilder = true)
 public class SwaggerHubClient {
     private static final String DOWNLOAD_FAILED_ERROR = "Failed to download API definition: ";
     private static final String UPLOAD_FAILED_ERROR = "Failed to upload API definition: ";
-    private static final OkHttpClient CLIENT = new OkHttpClient();
     private static final String APIS = "apis";
+    private static final int HTTP_NOT_MODIFIED = 304;
+    private static final int HTTP_NOT_FOUND = 404;
+    private static final int HTTP_RANGE_NOT_SATISFIABLE = 416;
+    private static final Logger LOGGER = Logging.getLogger(SwaggerHubClient.class);
 
     @NonNull private final String host;
     @NonNull private final String protocol;
@@ -61,10 +78,35 @@ public class SwaggerHubClient {
     private final int port;
     private final Boolean onPremise;
     private final String onPremiseAPISuffix;
+
+    /** Built from {@link HttpClientSettings}, there is no default client. */
     private final OkHttpClient client;
 
+    private final ValidatorStore validatorStore;
+    @Builder.Default private final RetryPolicy retryPolicy = RetryPolicy.none();
+    private final RateLimiter rateLimiter;
+    private final DefinitionCache definitionCache;
+
+    /** Serve downloads from {@link #definitionCache} only, without contacting the server. */
+    private final boolean offline;
+
+    /**
+     * Ask for definitions downloaded to files uncompressed, so that {@link PartialDownload} can
+     * continue them.
+     */
+    @Builder.Default private final boolean resumableDownloads = true;
+
+    /** Path of the task the calls are made for, see {@link RequestMetrics.Tag}. */
+    private final String taskPath;
+
+    @Builder.Default private final DebugLogger debugLogger = DebugLogger.DISABLED;
+
+    /**
+     * @param client built with {@link HttpClientSettings#createClient(TransferStats,
+     *     RequestMetrics)}, usually shared by all SwaggerHub clients of the build
+     */
     public static SwaggerHubClient create(
-            String host, Integer port, String protocol, String token) {
+            String host, Integer port, String protocol, String token, OkHttpClient client) {
         return SwaggerHubClient.builder()
                 .host(host)
                 .port(port)
@@ -72,17 +114,21 @@ public class SwaggerHubClient {
                 .token(token)
                 .onPremise(false)
                 .onPremiseAPISuffix(null)
-                .client(CLIENT)
+                .client(client)
                 .build();
     }
 
+    /**
+     * @param client see {@link #create(String, Integer, String, String, OkHttpClient)}
+     */
     public static SwaggerHubClient createOnPremise(
             String host,
             Integer port,
             String protocol,
             String token,
             Boolean onPremise,
-            String onPremiseAPISuffix) {
+            String onPremiseAPISuffix,
+            OkHttpClient client) {
         SwaggerHubClient swaggweHubClient =
                 SwaggerHubClient.builder()
                         .host(host)
@@ -91,65 +137,655 @@ public class SwaggerHubClient {
                         .token(token)
                         .onPremise(onPremise != null ? onPremise : false)
                         .onPremiseAPISuffix(onPremiseAPISuffix != null ? onPremiseAPISuffix : "v1")
-                        .client(CLIENT)
+                        .client(client)
                         .build();
         return swaggweHubClient;
     }
 
+    /** A client sharing this one's settings that attributes its calls to the given task. */
+    public SwaggerHubClient forTask(String taskPath) {
+        return toBuilder().taskPath(taskPath).build();
+    }
+
     public String getDefinition(SwaggerHubRequest swaggerHubRequest) throws GradleException {
         HttpUrl httpUrl = getDownloadUrl(swaggerHubRequest);
         MediaType mediaType = getMediaType(swaggerHubRequest);
         Request requestBuilder = buildGetRequest(httpUrl, mediaType);
 
-        try (Response response = CLIENT.newCall(requestBuilder).execute()) {
-            String responseBody = response.body() != null ? response.body().string() : null;
-            if (responseBody == null) {
-                throw new GradleException(DOWNLOAD_FAILED_ERROR + "Response body is empty");
-            } else if (!response.isSuccessful()) {
-                throw new GradleException(DOWNLOAD_FAILED_ERROR + responseBody);
-            } else {
-                return responseBody;
+        try {
+            return execute(requestBuilder, true, SwaggerHubClient::readDefinition);
+        } catch (IOException e) {
+            throw new GradleException(DOWNLOAD_FAILED_ERROR, e);
+        }
+    }
+
+    /**
+     * Non-blocking {@link #getDefinition(SwaggerHubRequest)}. Cancelling the future cancels the
+     * call in flight or a pending retry.
+     */
+    public CompletableFuture<String> getDefinitionAsync(SwaggerHubRequest swaggerHubRequest) {
+        Request request =
+                buildGetRequest(getDownloadUrl(swaggerHubRequest), getMediaType(swaggerHubRequest));
+        return executeAsync(request, true, DOWNLOAD_FAILED_ERROR, SwaggerHubClient::readDefinition);
+    }
+
+    /**
+     * Fetches a document referenced by a definition, for example a domain, as JSON. The token is
+     * only sent if the document is on the host of this client.
+     */
+    public CompletableFuture<String> getReferencedDocumentAsync(String url) {
+        HttpUrl httpUrl = HttpUrl.parse(url);
+        if (httpUrl == null) {
+            return CompletableFuture.failedFuture(
+                    new GradleException(DOWNLOAD_FAILED_ERROR + "unsupported URL " + url));
+        }
+        Request.Builder requestBuilder =
+                new Request.Builder()
+                        .url(httpUrl)
+                        .addHeader("Accept", "application/json")
+                        .addHeader("User-Agent", "swaggerhub-gradle-plugin");
+        if (token != null && httpUrl.host().equalsIgnoreCase(host)) {
+            requestBuilder.addHeader("Authorization", token);
+        }
+        return executeAsync(
+                requestBuilder.build(),
+                true,
+                DOWNLOAD_FAILED_ERROR,
+                SwaggerHubClient::readDefinition);
+    }
+
+    private static String readDefinition(Response response) throws IOException {
+        String responseBody = response.body() != null ? response.body().string() : null;
+        if (responseBody == null) {
+            throw new GradleException(DOWNLOAD_FAILED_ERROR + "Response body is empty");
+        } else if (!response.isSuccessful()) {
+            throw new GradleException(DOWNLOAD_FAILED_ERROR + responseBody);
+        }
+        return responseBody;
+    }
+
+    /**
+     * Like {@link #getDefinition(SwaggerHubRequest)}, but returns {@code null} if the API or
+     * version does not exist on SwaggerHub yet.
+     */
+    public String findDefinition(SwaggerHubRequest swaggerHubRequest) throws GradleException {
+        HttpUrl httpUrl = getDownloadUrl(swaggerHubRequest);
+        MediaType mediaType = getMediaType(swaggerHubRequest);
+        Request requestBuilder = buildGetRequest(httpUrl, mediaType);
+
+        try {
+            return execute(
+                    requestBuilder,
+                    true,
+                    response -> {
+                        if (response.code() == HTTP_NOT_FOUND) {
+                            return null;
+                        }
+                        String responseBody =
+                                response.body() != null ? response.body().string() : null;
+                        if (responseBody == null) {
+                            throw new GradleException(
+                                    DOWNLOAD_FAILED_ERROR + "Response body is empty");
+                        } else if (!response.isSuccessful()) {
+                            throw new GradleException(DOWNLOAD_FAILED_ERROR + responseBody);
+                        }
+                        return responseBody;
+                    });
+        } catch (IOException e) {
+            throw new GradleException(DOWNLOAD_FAILED_ERROR, e);
+        }
+    }
+
+    /**
+     * Asks for the ETag, or failing that the Last-Modified date, of a definition without
+     * downloading it.
+     *
+     * @return {@code null} if the server sends neither
+     */
+    public String getRevision(SwaggerHubRequest swaggerHubRequest) throws GradleException {
+        HttpUrl httpUrl = getDownloadUrl(swaggerHubRequest);
+        MediaType mediaType = getMediaType(swaggerHubRequest);
+        Request request = buildGetRequest(httpUrl, mediaType).newBuilder().head().build();
+
+        try {
+            return execute(
+                    request,
+                    true,
+                    response -> {
+                        if (!response.isSuccessful()) {
+                            throw new GradleException(
+                                    DOWNLOAD_FAILED_ERROR + "HTTP " + response.code());
+                        }
+                        String eTag = response.header("ETag");
+                        return eTag != null ? eTag : response.header("Last-Modified");
+                    });
+        } catch (IOException e) {
+            throw new GradleException(DOWNLOAD_FAILED_ERROR, e);
+        }
+    }
+
+    /**
+     * Streams a definition into {@code outputFile}. The body is written to a temporary file next to
+     * the target and moved over it once complete, so the definition is never held in memory and a
+     * failed transfer leaves the previous file untouched.
+     *
+     * <p>If validators of an earlier download are known and the output file still exists, the
+     * request is made conditional. With a {@link DefinitionCache} a missing output file is restored
+     * from the cached copy once the server confirms it is current, and the cached copy is used as
+     * is when offline or when the server cannot be reached.
+     *
+     * @return {@code false} if the server reported the definition as not modified
+     */
+    public boolean downloadDefinition(SwaggerHubRequest swaggerHubRequest, Path outputFile)
+            throws GradleException {
+        HttpUrl httpUrl = getDownloadUrl(swaggerHubRequest);
+        MediaType mediaType = getMediaType(swaggerHubRequest);
+        String validatorKey = httpUrl + " " + mediaType;
+        DefinitionCache.Entry cached = getCachedDefinition(validatorKey);
+        if (offline && definitionCache != null) {
+            if (cached == null) {
+                throw new GradleException(
+                        DOWNLOAD_FAILED_ERROR
+                                + "no cached copy of "
+                                + httpUrl
+                                + " available in offline mode");
+            }
+            LOGGER.info("Offline, using cached copy of {}", httpUrl);
+            return copyFromCache(cached, validatorKey, outputFile);
+        }
+
+        String eTag = null;
+        String lastModified = null;
+        if (validatorStore != null && Files.isRegularFile(outputFile)) {
+            eTag = validatorStore.getETag(validatorKey);
+            lastModified = validatorStore.getLastModified(validatorKey);
+        }
+        // without validators for the output file, revalidate the cached copy instead
+        boolean revalidateCache = eTag == null && lastModified == null && cached != null;
+        if (revalidateCache) {
+            eTag = cached.getETag();
+            lastModified = cached.getLastModified();
+        }
+        Request.Builder requestBuilder = buildGetRequest(httpUrl, mediaType).newBuilder();
+        if (resumableDownloads) {
+            // OkHttp then neither asks for gzip nor decodes the response
+            requestBuilder.header("Accept-Encoding", "identity");
+        }
+        if (eTag != null) {
+            requestBuilder.header("If-None-Match", eTag);
+        }
+        if (lastModified != null) {
+            requestBuilder.header("If-Modified-Since", lastModified);
+        }
+
+        PartialDownload partialDownload = new PartialDownload(outputFile);
+        // null once a stale partial download has been discarded
+        ResponseHandler<Boolean> handler =
+                response -> {
+                    if (response.code() == HTTP_NOT_MODIFIED) {
+                        partialDownload.discard();
+                        if (revalidateCache) {
+                            return copyFromCache(cached, validatorKey, outputFile);
+                        }
+                        if (cached != null) {
+                            definitionCache.touch(cached);
+                        } else {
+                            storeInCache(
+                                    validatorKey,
+                                    outputFile,
+                                    validatorStore.getETag(validatorKey),
+                                    validatorStore.getLastModified(validatorKey));
+                        }
+                        return false;
+                    }
+                    ResponseBody body = response.body();
+                    if (response.code() == HTTP_RANGE_NOT_SATISFIABLE) {
+                        partialDownload.discard();
+                        return null;
+                    } else if (body == null) {
+                        throw new GradleException(DOWNLOAD_FAILED_ERROR + "Response body is empty");
+                    } else if (!response.isSuccessful()) {
+                        throw new GradleException(DOWNLOAD_FAILED_ERROR + body.string());
+                    }
+                    partialDownload.write(response);
+                    partialDownload.complete(outputFile);
+                    if (validatorStore != null) {
+                        validatorStore.update(
+                                validatorKey,
+                                response.header("ETag"),
+                                response.header("Last-Modified"));
+                    }
+                    storeInCache(
+                            validatorKey,
+                            outputFile,
+                            response.header("ETag"),
+                            response.header("Last-Modified"));
+                    return true;
+                };
+        try {
+            Request request = requestBuilder.build();
+            Boolean modified = execute(request, true, partialDownload::resume, handler);
+            if (modified == null) {
+                LOGGER.info("Partial download of {} is no longer valid, starting over", httpUrl);
+                modified = execute(request, true, partialDownload::resume, handler);
+            }
+            if (modified == null) {
+                throw new IOException("Partial download of " + httpUrl + " is no longer valid");
             }
+            return modified;
         } catch (IOException e) {
+            if (cached != null) {
+                LOGGER.warn(
+                        "SwaggerHub not reachable ({}), using cached copy of {}",
+                        e.getMessage(),
+                        httpUrl);
+                return copyFromCache(cached, validatorKey, outputFile);
+            }
             throw new GradleException(DOWNLOAD_FAILED_ERROR, e);
         }
     }
 
+    private DefinitionCache.Entry getCachedDefinition(String validatorKey) {
+        if (definitionCache == null) {
+            return null;
+        }
+        try {
+            return definitionCache.get(getCacheKey(validatorKey));
+        } catch (IOException e) {
+            LOGGER.warn("Could not read the definition cache: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private void storeInCache(
+            String validatorKey, Path outputFile, String eTag, String lastModified) {
+        if (definitionCache == null) {
+            return;
+        }
+        try {
+            definitionCache.put(getCacheKey(validatorKey), outputFile, eTag, lastModified);
+        } catch (IOException e) {
+            LOGGER.warn(
+                    "Could not store {} in the definition cache: {}", outputFile, e.getMessage());
+        }
+    }
+
+    private boolean copyFromCache(
+            DefinitionCache.Entry cached, String validatorKey, Path outputFile)
+            throws GradleException {
+        try {
+            AtomicFiles.write(outputFile, out -> Files.copy(cached.getBody(), out));
+        } catch (IOException e) {
+            throw new GradleException(DOWNLOAD_FAILED_ERROR + "cached copy is not readable", e);
+        }
+        definitionCache.touch(cached);
+        if (validatorStore != null) {
+            validatorStore.update(validatorKey, cached.getETag(), cached.getLastModified());
+        }
+        return true;
+    }
+
+    /** Definitions visible to one token are not served to builds using another one. */
+    private String getCacheKey(String validatorKey) {
+        return token != null ? validatorKey + " #" + tokenDigest(token) : validatorKey;
+    }
+
+    /**
+     * Hex SHA-256 of {@code token}, {@code null} without a token. Keys of state shared by several
+     * tasks or builds carry it instead of the token itself.
+     */
+    public static String tokenDigest(String token) {
+        if (token == null) {
+            return null;
+        }
+        try {
+            byte[] hash =
+                    MessageDigest.getInstance("SHA-256")
+                            .digest(token.getBytes(StandardCharsets.UTF_8));
+            StringBuilder result = new StringBuilder();
+            for (byte b : hash) {
+                result.append(String.format("%02x", b));
+            }
+            return result.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     public void saveDefinition(SwaggerHubRequest swaggerHubRequest) throws GradleException {
         HttpUrl httpUrl = getUploadUrl(swaggerHubRequest);
         MediaType mediaType = getMediaType(swaggerHubRequest);
-        Request httpRequest = buildPostRequest(httpUrl, mediaType, swaggerHubRequest.getSwagger());
+        Request httpRequest =
+                buildPostRequest(httpUrl, mediaType, getUploadBody(swaggerHubRequest));
 
-        try (Response response = CLIENT.newCall(httpRequest).execute()) {
-            String responseBody = response.body() != null ? response.body().string() : null;
-
-            if (responseBody == null) {
-                throw new GradleException(UPLOAD_FAILED_ERROR + "Response body is empty");
-            } else if (!response.isSuccessful()) {
-                throw new GradleException(UPLOAD_FAILED_ERROR + responseBody);
-            }
+        try {
+            execute(httpRequest, false, SwaggerHubClient::checkUploadResponse);
         } catch (IOException e) {
             throw new GradleException(UPLOAD_FAILED_ERROR, e);
         }
     }
 
+    /**
+     * Non-blocking {@link #saveDefinition(SwaggerHubRequest)}, cancellable like {@link
+     * #getDefinitionAsync(SwaggerHubRequest)}.
+     */
+    public CompletableFuture<Void> saveDefinitionAsync(SwaggerHubRequest swaggerHubRequest) {
+        Request httpRequest =
+                buildPostRequest(
+                        getUploadUrl(swaggerHubRequest),
+                        getMediaType(swaggerHubRequest),
+                        getUploadBody(swaggerHubRequest));
+        return executeAsync(
+                httpRequest, false, UPLOAD_FAILED_ERROR, SwaggerHubClient::checkUploadResponse);
+    }
+
     public void saveDefinitionPUT(SwaggerHubRequest swaggerHubRequest) throws GradleException {
         HttpUrl httpUrl = getDefaultVersionUrl(swaggerHubRequest);
         Request httpRequest = buildPutRequest(httpUrl, swaggerHubRequest.getVersion());
 
-        try (Response response = CLIENT.newCall(httpRequest).execute()) {
-            String responseBody = response.body() != null ? response.body().string() : null;
-
-            if (responseBody == null) {
-                throw new GradleException(UPLOAD_FAILED_ERROR + "Response body is empty");
-            } else if (!response.isSuccessful()) {
-                throw new GradleException(UPLOAD_FAILED_ERROR + responseBody);
-            }
+        try {
+            execute(httpRequest, true, SwaggerHubClient::checkUploadResponse);
         } catch (IOException e) {
             throw new GradleException(UPLOAD_FAILED_ERROR, e);
         }
     }
 
+    /**
+     * Non-blocking {@link #saveDefinitionPUT(SwaggerHubRequest)}, cancellable like {@link
+     * #getDefinitionAsync(SwaggerHubRequest)}.
+     */
+    public CompletableFuture<Void> saveDefinitionPUTAsync(SwaggerHubRequest swaggerHubRequest) {
+        Request httpRequest =
+                buildPutRequest(
+                        getDefaultVersionUrl(swaggerHubRequest), swaggerHubRequest.getVersion());
+        return executeAsync(
+                httpRequest, true, UPLOAD_FAILED_ERROR, SwaggerHubClient::checkUploadResponse);
+    }
+
+    private static Void checkUploadResponse(Response response) throws IOException {
+        String responseBody = response.body() != null ? response.body().string() : null;
+
+        if (responseBody == null) {
+            throw new GradleException(UPLOAD_FAILED_ERROR + "Response body is empty");
+        } else if (!response.isSuccessful()) {
+            throw new GradleException(UPLOAD_FAILED_ERROR + responseBody);
+        }
+        return null;
+    }
+
+    /**
+     * Executes the request and hands the response to {@code handler}, repeating the call as the
+     * retry policy allows. Failures while reading the body are retried as well for idempotent
+     * requests.
+     */
+    private <T> T execute(Request request, boolean idempotent, ResponseHandler<T> handler)
+            throws IOException {
+        return execute(request, idempotent, UnaryOperator.identity(), handler);
+    }
+
+    /**
+     * @param prepare adapts the request to the state before each attempt
+     */
+    private <T> T execute(
+            Request request,
+            boolean idempotent,
+            UnaryOperator<Request> prepare,
+            ResponseHandler<T> handler)
+            throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            long rateLimitWait = 0;
+            if (rateLimiter != null) {
+                long start = System.nanoTime();
+                rateLimiter.acquire();
+                rateLimitWait = System.nanoTime() - start;
+            }
+            Request attemptRequest =
+                    prepare.apply(request)
+                            .newBuilder()
+                            .tag(
+                                    RequestMetrics.Tag.class,
+                                    new RequestMetrics.Tag(taskPath, attempt, rateLimitWait))
+                            .build();
+            if (debugLogger.isTraceEnabled()) {
+                debugLogger.trace(
+                        "{} {} request headers:\n{}",
+                        request.method(),
+                        request.url(),
+                        attemptRequest.headers().newBuilder().removeAll("Authorization").build());
+            }
+            long start = System.nanoTime();
+            Response response;
+            try {
+                response = client.newCall(attemptRequest).execute();
+            } catch (IOException e) {
+                if (debugLogger.isDebugEnabled()) {
+                    debugLogger.debug(
+                            "{} {} attempt {} failed after {} ms: {}",
+                            request.method(),
+                            request.url(),
+                            attempt,
+                            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                            e.toString());
+                }
+                if (!retryPolicy.shouldRetry(attempt, e, idempotent)) {
+                    throw e;
+                }
+                waitBeforeRetry(request, attempt, null, e.toString());
+                continue;
+            }
+
+            if (debugLogger.isDebugEnabled()) {
+                debugLogger.debug(
+                        "{} {} attempt {}: {} {} after {} ms",
+                        request.method(),
+                        request.url(),
+                        attempt,
+                        response.code(),
+                        response.protocol(),
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            }
+            if (debugLogger.isTraceEnabled()) {
+                debugLogger.trace(
+                        "{} {} response headers:\n{}",
+                        request.method(),
+                        request.url(),
+                        response.headers());
+            }
+            String retryAfter;
+            String reason;
+            try (response) {
+                if (!retryPolicy.shouldRetry(attempt, response.code(), idempotent)) {
+                    return handler.handle(response);
+                }
+                retryAfter = response.header("Retry-After");
+                reason = "HTTP " + response.code();
+            } catch (IOException e) {
+                if (!idempotent || !retryPolicy.shouldRetry(attempt, e, true)) {
+                    throw e;
+                }
+                retryAfter = null;
+                reason = e.toString();
+            }
+            waitBeforeRetry(request, attempt, retryAfter, reason);
+        }
+    }
+
+    private void waitBeforeRetry(Request request, int attempt, String retryAfter, String reason)
+            throws IOException {
+        long delay = retryPolicy.delayMillis(attempt, retryAfter);
+        logRetry(request, attempt, delay, reason);
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to retry " + request.url());
+        }
+    }
+
+    private void logRetry(Request request, int attempt, long delay, String reason) {
+        LOGGER.warn(
+                "{} {} failed ({}), retrying in {} ms (attempt {} of {})",
+                request.method(),
+                request.url(),
+                reason,
+                delay,
+                attempt + 1,
+                retryPolicy.getMaxAttempts());
+    }
+
+    private <T> CompletableFuture<T> executeAsync(
+            Request request,
+            boolean idempotent,
+            String failureMessage,
+            ResponseHandler<T> handler) {
+        AsyncCall<T> asyncCall = new AsyncCall<>(request, idempotent, failureMessage, handler);
+        asyncCall.start();
+        return asyncCall.future;
+    }
+
+    /**
+     * A request enqueued on OkHttp's dispatcher, with the same retries as {@link #execute(Request,
+     * boolean, ResponseHandler)}. Rate limiter waits and retry delays are scheduled rather than
+     * slept, so no thread is blocked while a call waits. Cancelling {@link #future} cancels the
+     * current call; a scheduled attempt sees the cancelled future and does not start.
+     */
+    private final class AsyncCall<T> implements Callback {
+        private final Request request;
+        private final boolean idempotent;
+        private final String failureMessage;
+        private final ResponseHandler<T> handler;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private volatile Call call;
+        // attempts run one after another, each started once the previous one has ended
+        private volatile int attempt;
+        private volatile long rateLimitWait;
+        private volatile long sentAt;
+
+        AsyncCall(
+                Request request,
+                boolean idempotent,
+                String failureMessage,
+                ResponseHandler<T> handler) {
+            this.request = request;
+            this.idempotent = idempotent;
+            this.failureMessage = failureMessage;
+            this.handler = handler;
+            future.whenComplete(
+                    (result, failure) -> {
+                        Call current = call;
+                        if (future.isCancelled() && current != null) {
+                            current.cancel();
+                        }
+                    });
+        }
+
+        void start() {
+            attempt++;
+            rateLimitWait = rateLimiter != null ? rateLimiter.reserve() : 0;
+            if (rateLimitWait > 0) {
+                CompletableFuture.delayedExecutor(rateLimitWait, TimeUnit.NANOSECONDS)
+                        .execute(this::send);
+            } else {
+                send();
+            }
+        }
+
+        private void send() {
+            if (future.isDone()) {
+                return;
+            }
+            Request attemptRequest =
+                    request.newBuilder()
+                            .tag(
+                                    RequestMetrics.Tag.class,
+                                    new RequestMetrics.Tag(taskPath, attempt, rateLimitWait))
+                            .build();
+            if (debugLogger.isTraceEnabled()) {
+                debugLogger.trace(
+                        "{} {} request headers:\n{}",
+                        request.method(),
+                        request.url(),
+                        attemptRequest.headers().newBuilder().removeAll("Authorization").build());
+            }
+            Call newCall = client.newCall(attemptRequest);
+            call = newCall;
+            if (future.isCancelled()) {
+                newCall.cancel();
+                return;
+            }
+            sentAt = System.nanoTime();
+            newCall.enqueue(this);
+        }
+
+        @Override
+        public void onFailure(Call failedCall, IOException e) {
+            if (future.isDone()) {
+                return;
+            }
+            if (debugLogger.isDebugEnabled()) {
+                debugLogger.debug(
+                        "{} {} attempt {} failed after {} ms: {}",
+                        request.method(),
+                        request.url(),
+                        attempt,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - sentAt),
+                        e.toString());
+            }
+            if (retryPolicy.shouldRetry(attempt, e, idempotent)) {
+                retryLater(null, e.toString());
+            } else {
+                future.completeExceptionally(new GradleException(failureMessage, e));
+            }
+        }
+
+        @Override
+        public void onResponse(Call respondedCall, Response response) {
+            if (debugLogger.isDebugEnabled()) {
+                debugLogger.debug(
+                        "{} {} attempt {}: {} {} after {} ms",
+                        request.method(),
+                        request.url(),
+                        attempt,
+                        response.code(),
+                        response.protocol(),
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - sentAt));
+            }
+            if (debugLogger.isTraceEnabled()) {
+                debugLogger.trace(
+                        "{} {} response headers:\n{}",
+                        request.method(),
+                        request.url(),
+                        response.headers());
+            }
+            try (response) {
+                if (retryPolicy.shouldRetry(attempt, response.code(), idempotent)) {
+                    retryLater(response.header("Retry-After"), "HTTP " + response.code());
+                    return;
+                }
+                future.complete(handler.handle(response));
+            } catch (IOException e) {
+                if (idempotent && retryPolicy.shouldRetry(attempt, e, true)) {
+                    retryLater(null, e.toString());
+                } else {
+                    future.completeExceptionally(new GradleException(failureMessage, e));
+                }
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        }
+
+        private void retryLater(String retryAfter, String reason) {
+            long delay = retryPolicy.delayMillis(attempt, retryAfter);
+            logRetry(request, attempt, delay, reason);
+            CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS).execute(this::start);
+        }
+    }
+
+    @FunctionalInterface
+    private interface ResponseHandler<T> {
+        T handle(Response response) throws IOException;
+    }
+
     private Request buildGetRequest(HttpUrl httpUrl, MediaType mediaType) {
         Request.Builder requestBuilder =
                 new Request.Builder()
@@ -162,16 +798,25 @@ public class SwaggerHubClient {
         return requestBuilder.build();
     }
 
-    private Request buildPostRequest(HttpUrl httpUrl, MediaType mediaType, String content) {
+    private Request buildPostRequest(HttpUrl httpUrl, MediaType mediaType, RequestBody body) {
         return new Request.Builder()
                 .url(httpUrl)
                 .addHeader("Content-Type", mediaType.toString())
                 .addHeader("Authorization", token)
                 .addHeader("User-Agent", "swaggerhub-gradle-plugin")
-                .post(RequestBody.create(content, mediaType))
+                .post(body)
                 .build();
     }
 
+    /** Prefers streaming the definition file over the in-memory content of the request. */
+    private RequestBody getUploadBody(SwaggerHubRequest swaggerHubRequest) {
+        MediaType mediaType = getMediaType(swaggerHubRequest);
+        if (swaggerHubRequest.getDefinitionFile() != null) {
+            return RequestBody.create(swaggerHubRequest.getDefinitionFile(), mediaType);
+        }
+        return RequestBody.create(swaggerHubRequest.getSwagger(), mediaType);
+    }
+
     private Request buildPutRequest(HttpUrl httpUrl, String content) {
         String jsonBody = "{\"version\": \"" + content + "\"}";
 
@@ -186,14 +831,14 @@ public class SwaggerHubClient {
                 .build();
     }
 
-    private HttpUrl getDownloadUrl(SwaggerHubRequest swaggerHubRequest) {
+    HttpUrl getDownloadUrl(SwaggerHubRequest swaggerHubRequest) {
         return getBaseUrl(swaggerHubRequest.getOwner(), swaggerHubRequest.getApi())
                 .addEncodedPathSegment(swaggerHubRequest.getVersion())
                 .addQueryParameter("resolved", String.valueOf(swaggerHubRequest.getResolved()))
                 .build();
     }
 
-    private HttpUrl getUploadUrl(SwaggerHubRequest swaggerHubRequest) {
+    HttpUrl getUploadUrl(SwaggerHubRequest swaggerHubRequest) {
         return getBaseUrl(swaggerHubRequest.getOwner(), swaggerHubRequest.getApi())
                 .addEncodedQueryParameter("version", swaggerHubRequest.getVersion())
                 .addEncodedQueryParameter(
@@ -210,17 +855,22 @@ public class SwaggerHubClient {
     }
 
     private HttpUrl.Builder getBaseUrl(String owner, String api) {
+        return getRegistryUrl(APIS).addEncodedPathSegment(owner).addEncodedPathSegment(api);
+    }
+
+    /**
+     * @param kind {@code apis} or {@code domains}
+     */
+    HttpUrl.Builder getRegistryUrl(String kind) {
         return new HttpUrl.Builder()
                 .scheme(protocol)
                 .host(host)
                 .port(port)
                 .addPathSegment(onPremise ? onPremiseAPISuffix : "")
-                .addPathSegment(APIS)
-                .addEncodedPathSegment(owner)
-                .addEncodedPathSegment(api);
+                .addPathSegment(kind);
     }
 
-    private MediaType getMediaType(SwaggerHubRequest swaggerHubRequest) {
+    MediaType getMediaType(SwaggerHubRequest swaggerHubRequest) {
         String headerFormat = "application/%s; charset=utf-8";
         MediaType mediaType =
                 MediaType.parse(String.format(headerFormat, swaggerHubRequest.getFormat()));
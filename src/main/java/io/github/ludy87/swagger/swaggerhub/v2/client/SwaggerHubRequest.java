@@ -31,6 +31,8 @@
  */
 package io.github.ludy87.swagger.swaggerhub.v2.client;
 
+import java.io.File;
+
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
@@ -47,6 +49,7 @@ public class SwaggerHubRequest {
     private String owner;
     private String version;
     private String swagger;
+    private File definitionFile;
     private String oas;
 
     @Builder.Default private String format = "json";
@@ -0,0 +1,146 @@
+/* Copyright 2025 Ludy87
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.ludy87.swagger.swaggerhub.v2.client;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.ForwardingSink;
+import okio.ForwardingSource;
+import okio.Okio;
+import okio.Sink;
+import okio.Source;
+
+/**
+ * Bytes transferred by an OkHttp client, both as sent over the network and as seen by the plugin
+ * before compression or after decompression. Install {@link #applicationInterceptor()} first and
+ * {@link #networkInterceptor()} as network interceptor.
+ */
+public class TransferStats {
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final AtomicLong wireBytesSent = new AtomicLong();
+    private final AtomicLong bytesReceived = new AtomicLong();
+    private final AtomicLong wireBytesReceived = new AtomicLong();
+
+    /** Counts bodies as the plugin reads and writes them. */
+    public Interceptor applicationInterceptor() {
+        return chain -> {
+            Request request = chain.request();
+            if (request.body() != null && request.body().contentLength() > 0) {
+                bytesSent.addAndGet(request.body().contentLength());
+            }
+            return count(chain.proceed(request), bytesReceived);
+        };
+    }
+
+    /** Counts bodies as they go over the network. */
+    public Interceptor networkInterceptor() {
+        return chain -> {
+            Request request = chain.request();
+            if (request.body() != null) {
+                request =
+                        request.newBuilder()
+                                .method(request.method(), new CountingRequestBody(request.body()))
+                                .build();
+            }
+            return count(chain.proceed(request), wireBytesReceived);
+        };
+    }
+
+    public long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    public long getWireBytesSent() {
+        return wireBytesSent.get();
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived.get();
+    }
+
+    public long getWireBytesReceived() {
+        return wireBytesReceived.get();
+    }
+
+    private static Response count(Response response, AtomicLong counter) {
+        ResponseBody body = response.body();
+        if (body == null) {
+            return response;
+        }
+        Source counting =
+                new ForwardingSource(body.source()) {
+                    @Override
+                    public long read(Buffer sink, long byteCount) throws IOException {
+                        long read = super.read(sink, byteCount);
+                        if (read > 0) {
+                            counter.addAndGet(read);
+                        }
+                        return read;
+                    }
+                };
+        return response.newBuilder()
+                .body(
+                        ResponseBody.create(
+                                Okio.buffer(counting), body.contentType(), body.contentLength()))
+                .build();
+    }
+
+    private class CountingRequestBody extends RequestBody {
+        private final RequestBody delegate;
+
+        CountingRequestBody(RequestBody delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return delegate.contentType();
+        }
+
+        @Override
+        public long contentLength() throws IOException {
+            return delegate.contentLength();
+        }
+
+        @Override
+        public boolean isOneShot() {
+            return delegate.isOneShot();
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            Sink counting =
+                    new ForwardingSink(sink) {
+                        @Override
+                        public void write(Buffer source, long byteCount) throws IOException {
+                            super.write(source, byteCount);
+                            wireBytesSent.addAndGet(byteCount);
+                        }
+                    };
+            BufferedSink buffered = Okio.buffer(counting);
+            delegate.writeTo(buffered);
+            buffered.emit();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/* Copyright 2025 Ludy87
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.ludy87.swagger.swaggerhub.v2.client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+/**
+ * ETag and Last-Modified values of previously downloaded definitions, persisted in a properties
+ * file so that later builds can send conditional requests.
+ */
+public class ValidatorStore {
+    private static final String ETAG = ".etag";
+    private static final String LAST_MODIFIED = ".lastModified";
+
+    private final Path file;
+    private final Properties properties = new Properties();
+    private boolean dirty;
+
+    private ValidatorStore(Path file) {
+        this.file = file;
+    }
+
+    public static ValidatorStore load(Path file) throws IOException {
+        ValidatorStore store = new ValidatorStore(file);
+        if (Files.isRegularFile(file)) {
+            try (InputStream in = Files.newInputStream(file)) {
+                store.properties.load(in);
+            }
+        }
+        return store;
+    }
+
+    public synchronized String getETag(String key) {
+        return properties.getProperty(key + ETAG);
+    }
+
+    public synchronized String getLastModified(String key) {
+        return properties.getProperty(key + LAST_MODIFIED);
+    }
+
+    public synchronized void update(String key, String eTag, String lastModified) {
+        setOrRemove(key + ETAG, eTag);
+        setOrRemove(key + LAST_MODIFIED, lastModified);
+        dirty = true;
+    }
+
+    public synchronized void save() throws IOException {
+        if (!dirty) {
+            return;
+        }
+        Files.createDirectories(file.getParent());
+        try (OutputStream out = Files.newOutputStream(file)) {
+            properties.store(out, "SwaggerHub definition validators");
+        }
+        dirty = false;
+    }
+
+    private void setOrRemove(String key, String value) {
+        if (value == null) {
+            properties.remove(key);
+        } else {
+            properties.setProperty(key, value);
+        }
+    }
+}
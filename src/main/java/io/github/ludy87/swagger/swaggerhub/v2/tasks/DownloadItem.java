@@ -0,0 +1,40 @@
+/* Copyright 2025 Ludy87
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.ludy87.swagger.swaggerhub.v2.tasks;
+
+import java.io.File;
+import java.io.Serializable;
+
+import lombok.Value;
+
+/**
+ * A definition to download with all task defaults applied, handed to {@link DownloadWorkAction}.
+ */
+@Value
+public class DownloadItem implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    String owner;
+    String api;
+    String version;
+    String format;
+    Boolean resolved;
+    File outputFile;
+
+    @Override
+    public String toString() {
+        return owner + "/" + api + "/" + version;
+    }
+}
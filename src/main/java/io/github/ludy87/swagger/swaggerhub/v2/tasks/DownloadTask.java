@@ -32,87 +32,334 @@
 package io.github.ludy87.swagger.swaggerhub.v2.tasks;
 
 import java.io.File;
-import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 
-import org.gradle.api.DefaultTask;
+import javax.inject.Inject;
+
+import org.gradle.api.Action;
 import org.gradle.api.GradleException;
-import org.gradle.api.logging.Logging;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.provider.ProviderFactory;
+import org.gradle.api.tasks.CacheableTask;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Nested;
 import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.OutputFile;
 import org.gradle.api.tasks.TaskAction;
-import org.slf4j.Logger;
-
-import io.github.ludy87.swagger.swaggerhub.v2.client.SwaggerHubClient;
-import io.github.ludy87.swagger.swaggerhub.v2.client.SwaggerHubRequest;
-
-import lombok.Getter;
-import lombok.Setter;
-
-/** Downloads API definition from SwaggerHub */
-@Getter
-@Setter
-public class DownloadTask extends DefaultTask {
-    private static final Logger LOGGER = Logging.getLogger(DownloadTask.class);
-    @Input private String owner;
-    @Input private String api;
-    @Input private String version;
-    @Input @Optional private String token;
-    @Input private String outputFile;
-    @Input @Optional private String format = "json";
-    @Input @Optional private String host = "api.swaggerhub.com";
-    @Input @Optional private Integer port = 443;
-    @Input @Optional private String protocol = "https";
-    @Input @Optional private Boolean resolved = false;
-    @Input @Optional private Boolean onPremise = false;
-    @Input @Optional private String onPremiseAPISuffix = "v1";
-
-    @Internal private SwaggerHubClient swaggerHubClient;
+
+/**
+ * Downloads API definitions from SwaggerHub. Either a single definition configured directly on the
+ * task, or several {@link #definition(Action) definitions} fetched concurrently.
+ *
+ * <p>Results are only taken from the build cache, or considered up to date, if the definitions are
+ * {@link #getPinned() pinned} or their {@link #getRevision() revision} is known.
+ */
+@CacheableTask
+public abstract class DownloadTask extends SwaggerHubTask {
+    private final List<DownloadDefinition> definitions = new ArrayList<>();
+
+    public DownloadTask() {
+        getFormat().convention("json");
+        getResolved().convention(false);
+        getMaxParallelDownloads().convention(4);
+        getValidatorFile()
+                .convention(
+                        getProjectLayout()
+                                .getBuildDirectory()
+                                .file("swaggerhub/" + getName() + "-validators.properties"));
+        getPinned().convention(false);
+        getConvertLocally().convention(false);
+        getResolveLocally().convention(false);
+        getCheckRevision().convention(false);
+        Provider<String> remoteRevision =
+                getProviders()
+                        .of(
+                                RemoteRevisionSource.class,
+                                spec -> {
+                                    RemoteRevisionSource.Parameters parameters =
+                                            spec.getParameters();
+                                    parameters.getClientService().set(getClientService());
+                                    parameters.getTaskPath().set(getPath());
+                                    parameters.getHost().set(getHost());
+                                    parameters.getPort().set(getPort());
+                                    parameters.getProtocol().set(getProtocol());
+                                    parameters.getToken().set(getToken());
+                                    parameters.getOnPremise().set(getOnPremise());
+                                    parameters.getOnPremiseAPISuffix().set(getOnPremiseAPISuffix());
+                                    parameters
+                                            .getDefinitions()
+                                            .set(getProviders().provider(this::collectDefinitions));
+                                });
+        getRevision()
+                .convention(
+                        getCheckRevision()
+                                .flatMap(
+                                        check ->
+                                                check
+                                                        ? remoteRevision
+                                                        : getProviders().provider(() -> null)));
+        // otherwise a definition can change on SwaggerHub without any input changing, freshness
+        // is checked with a conditional request instead
+        getOutputs().upToDateWhen(task -> isReproducible());
+        getOutputs()
+                .cacheIf(
+                        "the definitions are pinned or their revision is known",
+                        task -> isReproducible());
+    }
+
+    @Input
+    @Optional
+    public abstract Property<String> getOwner();
+
+    @Input
+    @Optional
+    public abstract Property<String> getApi();
+
+    @Input
+    @Optional
+    public abstract Property<String> getVersion();
+
+    /** Not part of the cache key, the definition does not depend on who downloads it. */
+    @Internal
+    public abstract Property<String> getToken();
+
+    @OutputFile
+    @Optional
+    public abstract RegularFileProperty getOutputFile();
+
+    @Input
+    @Optional
+    public abstract Property<String> getFormat();
+
+    @Input
+    @Optional
+    public abstract Property<Boolean> getResolved();
+
+    /** Only schedules the downloads, so not part of the cache key. */
+    @Internal
+    public abstract Property<Integer> getMaxParallelDownloads();
+
+    /**
+     * Fetch definitions that differ only in format once, as JSON, and write the other formats from
+     * that copy instead of having SwaggerHub render each of them.
+     */
+    @Input
+    @Optional
+    public abstract Property<Boolean> getConvertLocally();
+
+    /**
+     * Download resolved definitions unresolved and inline their external references in the plugin,
+     * fetching each referenced document once per build.
+     */
+    @Input
+    @Optional
+    public abstract Property<Boolean> getResolveLocally();
+
+    /**
+     * Where the APIs and domains referenced by the definitions are downloaded to, with the
+     * references of the definitions pointing there. Referenced documents are not downloaded if this
+     * is not set.
+     */
+    @OutputDirectory
+    @Optional
+    public abstract DirectoryProperty getReferencesDirectory();
+
+    @Nested
+    public List<DownloadDefinition> getDefinitions() {
+        return definitions;
+    }
+
+    /**
+     * Marks the definitions as immutable, for example released versions, so that their coordinates
+     * alone identify the content.
+     */
+    @Internal
+    public abstract Property<Boolean> getPinned();
+
+    /** Opaque revision of the definitions, part of the cache key. */
+    @Input
+    @Optional
+    public abstract Property<String> getRevision();
+
+    /**
+     * Fills in {@link #getRevision()} from the ETag or Last-Modified header SwaggerHub reports for
+     * the definitions, which costs one {@code HEAD} request per definition.
+     */
+    @Internal
+    public abstract Property<Boolean> getCheckRevision();
+
+    /** Where ETag and Last-Modified of earlier downloads are kept. */
+    @Internal
+    public abstract RegularFileProperty getValidatorFile();
+
+    @Inject
+    protected abstract ObjectFactory getObjectFactory();
+
+    @Inject
+    protected abstract ProviderFactory getProviders();
+
+    public void owner(String owner) {
+        getOwner().set(owner);
+    }
+
+    public void api(String api) {
+        getApi().set(api);
+    }
+
+    public void version(String version) {
+        getVersion().set(version);
+    }
+
+    public void token(String token) {
+        getToken().set(token);
+    }
+
+    public void outputFile(Object outputFile) {
+        getOutputFile().set(getProject().file(outputFile));
+    }
+
+    public void format(String format) {
+        getFormat().set(format);
+    }
+
+    public void resolved(Boolean resolved) {
+        getResolved().set(resolved);
+    }
+
+    public void maxParallelDownloads(Integer maxParallelDownloads) {
+        getMaxParallelDownloads().set(maxParallelDownloads);
+    }
+
+    public void convertLocally(Boolean convertLocally) {
+        getConvertLocally().set(convertLocally);
+    }
+
+    public void resolveLocally(Boolean resolveLocally) {
+        getResolveLocally().set(resolveLocally);
+    }
+
+    public void referencesDirectory(Object referencesDirectory) {
+        getReferencesDirectory().set(getProject().file(referencesDirectory));
+    }
+
+    public void pinned(Boolean pinned) {
+        getPinned().set(pinned);
+    }
+
+    public void revision(String revision) {
+        getRevision().set(revision);
+    }
+
+    public void checkRevision(Boolean checkRevision) {
+        getCheckRevision().set(checkRevision);
+    }
+
+    /** Adds another API definition to be downloaded by this task. */
+    public void definition(Action<? super DownloadDefinition> action) {
+        DownloadDefinition definition = getObjectFactory().newInstance(DownloadDefinition.class);
+        action.execute(definition);
+        definitions.add(definition);
+    }
 
     @TaskAction
     public void downloadDefinition() throws GradleException {
-        swaggerHubClient = SwaggerHubClient.create(host, port, protocol, token);
+        List<DownloadItem> toDownload = collectDefinitions();
+        if (toDownload.isEmpty()) {
+            throw new GradleException(
+                    "No API definition configured, set api/owner/version/outputFile or add a"
+                            + " definition block");
+        }
 
-        LOGGER.info(
-                "Downloading from {}: api: {}, owner: {}, version: {}, format: {}, resolved: {},"
-                        + " outputFile: {}, onPremise: {}, onPremiseAPISuffix: {}",
-                host,
-                api,
+        getWorkerExecutor()
+                .noIsolation()
+                .submit(
+                        DownloadWorkAction.class,
+                        parameters -> {
+                            connect(parameters, getToken());
+                            parameters.getDefinitions().set(toDownload);
+                            parameters.getMaxParallelDownloads().set(getMaxParallelDownloads());
+                            parameters.getConvertLocally().set(getConvertLocally());
+                            parameters.getResolveLocally().set(getResolveLocally());
+                            parameters.getReferencesDirectory().set(getReferencesDirectory());
+                            parameters.getReferencesFormat().set(getFormat());
+                            parameters.getValidatorFile().set(getValidatorFile());
+                        });
+    }
+
+    private boolean isReproducible() {
+        return getPinned().get() || getRevision().isPresent();
+    }
+
+    /** All configured definitions with the task defaults applied. */
+    private List<DownloadItem> collectDefinitions() {
+        List<DownloadItem> result = new ArrayList<>();
+        if (getApi().isPresent()
+                || getOwner().isPresent()
+                || getVersion().isPresent()
+                || getOutputFile().isPresent()) {
+            result.add(
+                    toItem(
+                            "task " + getName(),
+                            getOwner().getOrNull(),
+                            getApi().getOrNull(),
+                            getVersion().getOrNull(),
+                            null,
+                            null,
+                            getOutputFile().isPresent()
+                                    ? getOutputFile().get().getAsFile()
+                                    : null));
+        }
+        for (DownloadDefinition definition : definitions) {
+            result.add(
+                    toItem(
+                            "API definition " + definition,
+                            definition.getOwner().getOrNull(),
+                            definition.getApi().getOrNull(),
+                            definition.getVersion().getOrNull(),
+                            definition.getFormat().getOrNull(),
+                            definition.getResolved().getOrNull(),
+                            definition.getOutputFile().isPresent()
+                                    ? definition.getOutputFile().get().getAsFile()
+                                    : null));
+        }
+        return result;
+    }
+
+    private DownloadItem toItem(
+            String description,
+            String owner,
+            String api,
+            String version,
+            String format,
+            Boolean resolved,
+            File outputFile) {
+        requireValue(owner, "owner", description);
+        requireValue(api, "api", description);
+        requireValue(version, "version", description);
+        requireValue(outputFile, "outputFile", description);
+        return new DownloadItem(
                 owner,
+                api,
                 version,
-                format,
-                resolved,
-                outputFile,
-                onPremise,
-                onPremiseAPISuffix);
-
-        SwaggerHubRequest swaggerHubRequest =
-                SwaggerHubRequest.builder()
-                        .api(api)
-                        .owner(owner)
-                        .version(version)
-                        .format(format)
-                        .resolved(resolved)
-                        .build();
-
-        try {
-            String swaggerJson = swaggerHubClient.getDefinition(swaggerHubRequest);
-            File file = new File(outputFile);
-
-            setUpOutputDir(file);
-            Files.write(Paths.get(outputFile), swaggerJson.getBytes(StandardCharsets.UTF_8));
-        } catch (IOException | GradleException e) {
-            throw new GradleException(e.getMessage(), e);
-        }
+                format != null ? format : getFormat().get(),
+                resolved != null ? resolved : getResolved().get(),
+                outputFile);
     }
 
-    private void setUpOutputDir(File file) throws IOException {
-        File parentFile = file.getParentFile();
-        if (parentFile != null) {
-            Files.createDirectories(file.getParentFile().toPath());
+    private void requireValue(Object value, String property, String description) {
+        if (value == null) {
+            throw new GradleException(
+                    "No value has been specified for property '"
+                            + property
+                            + "' of "
+                            + description);
         }
     }
 }
@@ -0,0 +1,231 @@
+/* Copyright 2025 Ludy87
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.ludy87.swagger.swaggerhub.v2.tasks;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.slf4j.Logger;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import io.github.ludy87.swagger.swaggerhub.v2.client.BatchExecutor;
+import io.github.ludy87.swagger.swaggerhub.v2.client.FormatConverter;
+import io.github.ludy87.swagger.swaggerhub.v2.client.ReferenceBundler;
+import io.github.ludy87.swagger.swaggerhub.v2.client.SwaggerHubClient;
+import io.github.ludy87.swagger.swaggerhub.v2.client.SwaggerHubRequest;
+import io.github.ludy87.swagger.swaggerhub.v2.client.ValidatorStore;
+
+/** Downloads the definitions of a {@link DownloadTask}. */
+public abstract class DownloadWorkAction
+        extends SwaggerHubWorkAction<DownloadWorkAction.Parameters> {
+    private static final Logger LOGGER = Logging.getLogger(DownloadWorkAction.class);
+
+    public interface Parameters extends SwaggerHubWorkParameters {
+        /** Definitions with format, resolved and output file already filled in. */
+        ListProperty<DownloadItem> getDefinitions();
+
+        Property<Integer> getMaxParallelDownloads();
+
+        Property<Boolean> getConvertLocally();
+
+        Property<Boolean> getResolveLocally();
+
+        /** Absent unless referenced documents are downloaded as well. */
+        DirectoryProperty getReferencesDirectory();
+
+        Property<String> getReferencesFormat();
+
+        RegularFileProperty getValidatorFile();
+    }
+
+    @Override
+    public void execute() {
+        Parameters parameters = getParameters();
+        ValidatorStore validatorStore;
+        try {
+            validatorStore =
+                    ValidatorStore.load(parameters.getValidatorFile().get().getAsFile().toPath());
+        } catch (IOException e) {
+            throw new GradleException(e.getMessage(), e);
+        }
+        SwaggerHubClient swaggerHubClient =
+                getSwaggerHubClient().toBuilder().validatorStore(validatorStore).build();
+
+        try {
+            BatchExecutor.execute(
+                    group(
+                            parameters.getDefinitions().get(),
+                            parameters.getConvertLocally().getOrElse(false)),
+                    parameters.getMaxParallelDownloads().getOrElse(1),
+                    getMaxVirtualThreads(),
+                    group -> group.get(0).toString(),
+                    group -> download(swaggerHubClient, group));
+        } finally {
+            try {
+                validatorStore.save();
+            } catch (IOException e) {
+                LOGGER.warn("Could not store definition validators: {}", e.getMessage());
+            }
+        }
+
+        if (parameters.getReferencesDirectory().isPresent()) {
+            Map<Path, String> definitions = new LinkedHashMap<>();
+            for (DownloadItem definition : parameters.getDefinitions().get()) {
+                definitions.put(definition.getOutputFile().toPath(), definition.getFormat());
+            }
+            int documents =
+                    new ReferenceBundler(
+                                    swaggerHubClient,
+                                    getRefResolver(),
+                                    parameters.getReferencesDirectory().get().getAsFile().toPath(),
+                                    parameters.getReferencesFormat().getOrElse("json"))
+                            .bundle(definitions);
+            LOGGER.info(
+                    "Downloaded {} referenced API definitions and domains to {}",
+                    documents,
+                    parameters.getReferencesDirectory().get().getAsFile());
+        }
+    }
+
+    /**
+     * With {@code convertLocally} definitions that only differ in format or output file end up in
+     * one group, otherwise every definition is a group of its own.
+     */
+    private static List<List<DownloadItem>> group(
+            List<DownloadItem> definitions, boolean convertLocally) {
+        Map<String, List<DownloadItem>> groups = new LinkedHashMap<>();
+        for (DownloadItem definition : definitions) {
+            String key =
+                    convertLocally
+                            ? definition + "?resolved=" + definition.getResolved()
+                            : String.valueOf(groups.size());
+            groups.computeIfAbsent(key, ignored -> new ArrayList<>()).add(definition);
+        }
+        return new ArrayList<>(groups.values());
+    }
+
+    /**
+     * Downloads the first JSON definition of the group, or the first one if there is none, and
+     * derives the other outputs from it.
+     */
+    private void download(SwaggerHubClient swaggerHubClient, List<DownloadItem> group)
+            throws GradleException {
+        DownloadItem fetched =
+                group.stream()
+                        .filter(definition -> "json".equalsIgnoreCase(definition.getFormat()))
+                        .findFirst()
+                        .orElse(group.get(0));
+        boolean changed = download(swaggerHubClient, fetched);
+        for (DownloadItem definition : group) {
+            if (definition == fetched || !changed && definition.getOutputFile().exists()) {
+                continue;
+            }
+            LOGGER.info(
+                    "Converting {} to {} in {}",
+                    fetched.getOutputFile(),
+                    definition.getFormat(),
+                    definition.getOutputFile());
+            try {
+                FormatConverter.convert(
+                        fetched.getOutputFile().toPath(),
+                        fetched.getFormat(),
+                        definition.getOutputFile().toPath(),
+                        definition.getFormat());
+            } catch (IOException e) {
+                throw new GradleException(
+                        "Could not convert API definition "
+                                + definition
+                                + " to "
+                                + definition.getFormat()
+                                + ": "
+                                + e.getMessage(),
+                        e);
+            }
+        }
+    }
+
+    /**
+     * @return {@code false} if the definition is unchanged and the output file was kept
+     */
+    private boolean download(SwaggerHubClient swaggerHubClient, DownloadItem definition)
+            throws GradleException {
+        LOGGER.info(
+                "Downloading from {}: api: {}, owner: {}, version: {}, format: {}, resolved: {},"
+                        + " outputFile: {}, onPremise: {}, onPremiseAPISuffix: {}",
+                swaggerHubClient.getHost(),
+                definition.getApi(),
+                definition.getOwner(),
+                definition.getVersion(),
+                definition.getFormat(),
+                definition.getResolved(),
+                definition.getOutputFile(),
+                swaggerHubClient.getOnPremise(),
+                swaggerHubClient.getOnPremiseAPISuffix());
+
+        SwaggerHubRequest swaggerHubRequest =
+                SwaggerHubRequest.builder()
+                        .api(definition.getApi())
+                        .owner(definition.getOwner())
+                        .version(definition.getVersion())
+                        .format(definition.getFormat())
+                        .resolved(definition.getResolved())
+                        .build();
+
+        try {
+            if (definition.getResolved() && getParameters().getResolveLocally().getOrElse(false)) {
+                writeResolved(swaggerHubClient, swaggerHubRequest, definition);
+                return true;
+            }
+            if (!swaggerHubClient.downloadDefinition(
+                    swaggerHubRequest, definition.getOutputFile().toPath())) {
+                LOGGER.info(
+                        "API definition {} unchanged, keeping {}",
+                        definition,
+                        definition.getOutputFile());
+                return false;
+            }
+            return true;
+        } catch (GradleException e) {
+            throw new GradleException(e.getMessage(), e);
+        }
+    }
+
+    private void writeResolved(
+            SwaggerHubClient swaggerHubClient,
+            SwaggerHubRequest swaggerHubRequest,
+            DownloadItem definition)
+            throws GradleException {
+        JsonNode resolved =
+                getRefResolver().getResolvedDefinition(swaggerHubClient, swaggerHubRequest);
+        try {
+            FormatConverter.write(
+                    resolved, definition.getOutputFile().toPath(), definition.getFormat());
+        } catch (IOException e) {
+            throw new GradleException(
+                    "Could not write API definition " + definition + ": " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/* Copyright 2025 Ludy87
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.ludy87.swagger.swaggerhub.v2.tasks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.ValueSource;
+import org.gradle.api.provider.ValueSourceParameters;
+
+import io.github.ludy87.swagger.swaggerhub.v2.SwaggerHubClientService;
+import io.github.ludy87.swagger.swaggerhub.v2.client.SwaggerHubClient;
+import io.github.ludy87.swagger.swaggerhub.v2.client.SwaggerHubRequest;
+
+/**
+ * Current revision of the definitions of a {@link DownloadTask}, built from the ETag or
+ * Last-Modified header SwaggerHub sends for each of them. Absent if any definition has neither.
+ */
+public abstract class RemoteRevisionSource
+        implements ValueSource<String, RemoteRevisionSource.Parameters> {
+
+    public interface Parameters extends ValueSourceParameters {
+        /**
+         * The revision checks share the client of the downloads, with its timeouts, retries and
+         * rate limit.
+         */
+        Property<SwaggerHubClientService> getClientService();
+
+        Property<String> getTaskPath();
+
+        Property<String> getHost();
+
+        Property<Integer> getPort();
+
+        Property<String> getProtocol();
+
+        Property<String> getToken();
+
+        Property<Boolean> getOnPremise();
+
+        Property<String> getOnPremiseAPISuffix();
+
+        ListProperty<DownloadItem> getDefinitions();
+    }
+
+    @Override
+    public String obtain() {
+        Parameters parameters = getParameters();
+        SwaggerHubClient swaggerHubClient =
+                parameters
+                        .getClientService()
+                        .get()
+                        .getClient(
+                                parameters.getHost().get(),
+                                parameters.getPort().get(),
+                                parameters.getProtocol().get(),
+                                parameters.getToken().getOrNull(),
+                                parameters.getOnPremise().get(),
+                                parameters.getOnPremiseAPISuffix().get())
+                        .forTask(parameters.getTaskPath().getOrNull());
+
+        List<String> revisions = new ArrayList<>();
+        for (DownloadItem definition : parameters.getDefinitions().get()) {
+            String revision =
+                    swaggerHubClient.getRevision(
+                            SwaggerHubRequest.builder()
+                                    .api(definition.getApi())
+                                    .owner(definition.getOwner())
+                                    .version(definition.getVersion())
+                                    .format(definition.getFormat())
+                                    .resolved(definition.getResolved())
+                                    .build());
+            if (revision == null) {
+                return null;
+            }
+            revisions.add(definition + "=" + revision);
+        }
+        return String.join(",", revisions);
+    }
+}
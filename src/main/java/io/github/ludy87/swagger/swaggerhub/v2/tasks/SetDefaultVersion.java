@@ -14,66 +14,52 @@
  */
 package io.github.ludy87.swagger.swaggerhub.v2.tasks;
 
-import org.gradle.api.DefaultTask;
 import org.gradle.api.GradleException;
-import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.Property;
 import org.gradle.api.tasks.Input;
-import org.gradle.api.tasks.Internal;
-import org.gradle.api.tasks.Optional;
 import org.gradle.api.tasks.TaskAction;
-import org.slf4j.Logger;
 
-import io.github.ludy87.swagger.swaggerhub.v2.client.SwaggerHubClient;
-import io.github.ludy87.swagger.swaggerhub.v2.client.SwaggerHubRequest;
+public abstract class SetDefaultVersion extends SwaggerHubTask {
 
-import lombok.Getter;
-import lombok.Setter;
+    @Input
+    public abstract Property<String> getOwner();
 
-@Getter
-@Setter
-public class SetDefaultVersion extends DefaultTask {
-    private static final Logger LOGGER = Logging.getLogger(SetDefaultVersion.class);
-    @Input private String owner;
-    @Input private String api;
-    @Input private String version;
-    @Input private String token;
-    @Input @Optional private String host = "api.swaggerhub.com";
-    @Input @Optional private Integer port = 443;
-    @Input @Optional private String protocol = "https";
-    @Input @Optional private Boolean onPremise = false;
-    @Input @Optional private String onPremiseAPISuffix = "v1";
+    @Input
+    public abstract Property<String> getApi();
 
-    @Internal private SwaggerHubClient swaggerHubClient;
+    @Input
+    public abstract Property<String> getVersion();
 
-    @TaskAction
-    public void uploadDefinition() throws GradleException {
-        swaggerHubClient =
-                SwaggerHubClient.createOnPremise(
-                        host, port, protocol, token, onPremise, onPremiseAPISuffix);
+    @Input
+    public abstract Property<String> getToken();
+
+    public void owner(String owner) {
+        getOwner().set(owner);
+    }
+
+    public void api(String api) {
+        getApi().set(api);
+    }
 
-        LOGGER.info(
-                "Setting default version to {}: api: {}, owner: {}, version: {}, onPremise: {},"
-                        + " onPremiseAPISuffix: {}",
-                host,
-                api,
-                owner,
-                version,
-                onPremise,
-                onPremiseAPISuffix);
+    public void version(String version) {
+        getVersion().set(version);
+    }
 
-        try {
-            SwaggerHubRequest swaggerHubRequest =
-                    SwaggerHubRequest.builder()
-                            .api(api)
-                            .owner(owner)
-                            .version(version)
-                            .onPremise(onPremise)
-                            .onPremiseAPISuffix(onPremiseAPISuffix)
-                            .build();
+    public void token(String token) {
+        getToken().set(token);
+    }
 
-            swaggerHubClient.saveDefinitionPUT(swaggerHubRequest);
-        } catch (GradleException e) {
-            throw new GradleException(e.getMessage(), e);
-        }
+    @TaskAction
+    public void uploadDefinition() throws GradleException {
+        getWorkerExecutor()
+                .noIsolation()
+                .submit(
+                        SetDefaultVersionWorkAction.class,
+                        parameters -> {
+                            connect(parameters, getToken());
+                            parameters.getOwner().set(getOwner());
+                            parameters.getApi().set(getApi());
+                            parameters.getVersion().set(getVersion());
+                        });
     }
 }
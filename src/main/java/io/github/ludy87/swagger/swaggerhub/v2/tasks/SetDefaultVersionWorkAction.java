@@ -0,0 +1,71 @@
+/* Copyright 2025 Ludy87
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.ludy87.swagger.swaggerhub.v2.tasks;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.Property;
+import org.slf4j.Logger;
+
+import io.github.ludy87.swagger.swaggerhub.v2.client.Futures;
+import io.github.ludy87.swagger.swaggerhub.v2.client.SwaggerHubClient;
+import io.github.ludy87.swagger.swaggerhub.v2.client.SwaggerHubRequest;
+
+/** Sets the default version for a {@link SetDefaultVersion} task. */
+public abstract class SetDefaultVersionWorkAction
+        extends SwaggerHubWorkAction<SetDefaultVersionWorkAction.Parameters> {
+    private static final Logger LOGGER = Logging.getLogger(SetDefaultVersionWorkAction.class);
+
+    public interface Parameters extends SwaggerHubWorkParameters {
+        Property<String> getOwner();
+
+        Property<String> getApi();
+
+        Property<String> getVersion();
+    }
+
+    @Override
+    public void execute() {
+        Parameters parameters = getParameters();
+        SwaggerHubClient swaggerHubClient = getSwaggerHubClient();
+        LOGGER.info(
+                "Setting default version to {}: api: {}, owner: {}, version: {}, onPremise: {},"
+                        + " onPremiseAPISuffix: {}",
+                swaggerHubClient.getHost(),
+                parameters.getApi().get(),
+                parameters.getOwner().get(),
+                parameters.getVersion().get(),
+                swaggerHubClient.getOnPremise(),
+                swaggerHubClient.getOnPremiseAPISuffix());
+
+        try {
+            SwaggerHubRequest swaggerHubRequest =
+                    SwaggerHubRequest.builder()
+                            .api(parameters.getApi().get())
+                            .owner(parameters.getOwner().get())
+                            .version(parameters.getVersion().get())
+                            .onPremise(swaggerHubClient.getOnPremise())
+                            .onPremiseAPISuffix(swaggerHubClient.getOnPremiseAPISuffix())
+                            .build();
+
+            // waits interruptibly, so cancelling the build cancels the call
+            Futures.await(
+                    swaggerHubClient.saveDefinitionPUTAsync(swaggerHubRequest),
+                    "the default version of " + swaggerHubRequest.getApi());
+        } catch (GradleException e) {
+            throw new GradleException(e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/* Copyright 2025 Ludy87
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.ludy87.swagger.swaggerhub.v2.tasks;
+
+import javax.inject.Inject;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ProjectLayout;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Optional;
+import org.gradle.workers.WorkerExecutor;
+
+import io.github.ludy87.swagger.swaggerhub.v2.SwaggerHubClientService;
+
+/**
+ * Connection settings shared by all SwaggerHub tasks. Besides {@code host = 'x'} every property can
+ * also be set with the method syntax {@code host 'x'} of earlier plugin versions.
+ */
+public abstract class SwaggerHubTask extends DefaultTask {
+
+    protected SwaggerHubTask() {
+        getHost().convention("api.swaggerhub.com");
+        getPort().convention(443);
+        getProtocol().convention("https");
+        getOnPremise().convention(false);
+        getOnPremiseAPISuffix().convention("v1");
+    }
+
+    @Input
+    @Optional
+    public abstract Property<String> getHost();
+
+    @Input
+    @Optional
+    public abstract Property<Integer> getPort();
+
+    @Input
+    @Optional
+    public abstract Property<String> getProtocol();
+
+    @Input
+    @Optional
+    public abstract Property<Boolean> getOnPremise();
+
+    @Input
+    @Optional
+    public abstract Property<String> getOnPremiseAPISuffix();
+
+    /** Shared HTTP client of the build, wired up by the plugin. */
+    @Internal
+    public abstract Property<SwaggerHubClientService> getClientService();
+
+    @Inject
+    public abstract WorkerExecutor getWorkerExecutor();
+
+    @Inject
+    public abstract ProjectLayout getProjectLayout();
+
+    public void host(String host) {
+        getHost().set(host);
+    }
+
+    public void port(Integer port) {
+        getPort().set(port);
+    }
+
+    public void protocol(String protocol) {
+        getProtocol().set(protocol);
+    }
+
+    public void onPremise(Boolean onPremise) {
+        getOnPremise().set(onPremise);
+    }
+
+    public void onPremiseAPISuffix(String onPremiseAPISuffix) {
+        getOnPremiseAPISuffix().set(onPremiseAPISuffix);
+    }
+
+    /** Fills in the connection parameters of a work action submitted by this task. */
+    protected void connect(SwaggerHubWorkParameters parameters, Provider<String> token) {
+        parameters.getClientService().set(getClientService());
+        parameters.getHost().set(getHost());
+        parameters.getPort().set(getPort());
+        parameters.getProtocol().set(getProtocol());
+        parameters.getToken().set(token);
+        parameters.getOnPremise().set(getOnPremise());
+        parameters.getOnPremiseAPISuffix().set(getOnPremiseAPISuffix());
+        parameters.getTaskPath().set(getPath());
+    }
+}
@@ -0,0 +1,51 @@
+/* Copyright 2025 Ludy87
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.ludy87.swagger.swaggerhub.v2.tasks;
+
+import org.gradle.workers.WorkAction;
+
+import io.github.ludy87.swagger.swaggerhub.v2.client.RefResolver;
+import io.github.ludy87.swagger.swaggerhub.v2.client.SwaggerHubClient;
+
+/**
+ * Base of the work actions doing the blocking HTTP calls of the SwaggerHub tasks, so the task
+ * actions return immediately and Gradle can run other work while they wait on the network.
+ */
+public abstract class SwaggerHubWorkAction<P extends SwaggerHubWorkParameters>
+        implements WorkAction<P> {
+
+    protected SwaggerHubClient getSwaggerHubClient() {
+        P parameters = getParameters();
+        return parameters
+                .getClientService()
+                .get()
+                .getClient(
+                        parameters.getHost().get(),
+                        parameters.getPort().get(),
+                        parameters.getProtocol().get(),
+                        parameters.getToken().getOrNull(),
+                        parameters.getOnPremise().getOrNull(),
+                        parameters.getOnPremiseAPISuffix().getOrNull())
+                .forTask(parameters.getTaskPath().getOrNull());
+    }
+
+    protected RefResolver getRefResolver() {
+        return getParameters().getClientService().get().getRefResolver();
+    }
+
+    protected int getMaxVirtualThreads() {
+        return getParameters().getClientService().get().getMaxVirtualThreads();
+    }
+}
@@ -0,0 +1,40 @@
+/* Copyright 2025 Ludy87
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.ludy87.swagger.swaggerhub.v2.tasks;
+
+import org.gradle.api.provider.Property;
+import org.gradle.workers.WorkParameters;
+
+import io.github.ludy87.swagger.swaggerhub.v2.SwaggerHubClientService;
+
+/** Connection settings shared by the parameters of all SwaggerHub work actions. */
+public interface SwaggerHubWorkParameters extends WorkParameters {
+    Property<SwaggerHubClientService> getClientService();
+
+    Property<String> getHost();
+
+    Property<Integer> getPort();
+
+    Property<String> getProtocol();
+
+    Property<String> getToken();
+
+    Property<Boolean> getOnPremise();
+
+    Property<String> getOnPremiseAPISuffix();
+
+    /** Path of the submitting task, to attribute the calls in the request metrics. */
+    Property<String> getTaskPath();
+}
@@ -0,0 +1,99 @@
+/* Copyright 2025 Ludy87
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.ludy87.swagger.swaggerhub.v2.tasks;
+
+import java.io.File;
+
+import javax.inject.Inject;
+
+import org.gradle.api.file.ProjectLayout;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.Optional;
+
+/**
+ * A single API definition published by a batch {@link UploadTask}. Owner, version, format,
+ * isPrivate and oas fall back to the values configured on the task.
+ */
+public abstract class UploadDefinition {
+    @Input
+    @Optional
+    public abstract Property<String> getOwner();
+
+    @Input
+    public abstract Property<String> getApi();
+
+    @Input
+    @Optional
+    public abstract Property<String> getVersion();
+
+    @InputFile
+    public abstract RegularFileProperty getInputFile();
+
+    @Input
+    @Optional
+    public abstract Property<String> getFormat();
+
+    @Input
+    @Optional
+    public abstract Property<Boolean> getIsPrivate();
+
+    @Input
+    @Optional
+    public abstract Property<String> getOas();
+
+    @Inject
+    protected abstract ProjectLayout getProjectLayout();
+
+    public void owner(String owner) {
+        getOwner().set(owner);
+    }
+
+    public void api(String api) {
+        getApi().set(api);
+    }
+
+    public void version(String version) {
+        getVersion().set(version);
+    }
+
+    /** Relative paths are resolved against the project directory. */
+    public void inputFile(Object inputFile) {
+        if (inputFile instanceof File) {
+            getInputFile().set((File) inputFile);
+        } else {
+            getInputFile().set(getProjectLayout().getProjectDirectory().file(inputFile.toString()));
+        }
+    }
+
+    public void format(String format) {
+        getFormat().set(format);
+    }
+
+    public void isPrivate(Boolean isPrivate) {
+        getIsPrivate().set(isPrivate);
+    }
+
+    public void oas(String oas) {
+        getOas().set(oas);
+    }
+
+    @Override
+    public String toString() {
+        return getOwner().getOrNull() + "/" + getApi().getOrNull() + "/" + getVersion().getOrNull();
+    }
+}
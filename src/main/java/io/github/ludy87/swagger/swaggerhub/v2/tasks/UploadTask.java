@@ -31,90 +31,312 @@
  */
 package io.github.ludy87.swagger.swaggerhub.v2.tasks;
 
+import java.io.File;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
-import org.gradle.api.DefaultTask;
+import javax.inject.Inject;
+
+import org.gradle.api.Action;
 import org.gradle.api.GradleException;
-import org.gradle.api.logging.Logging;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.Property;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.InputFiles;
 import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Nested;
 import org.gradle.api.tasks.Optional;
 import org.gradle.api.tasks.TaskAction;
-import org.slf4j.Logger;
-
-import io.github.ludy87.swagger.swaggerhub.v2.client.SwaggerHubClient;
-import io.github.ludy87.swagger.swaggerhub.v2.client.SwaggerHubRequest;
-
-import lombok.Getter;
-import lombok.Setter;
-import lombok.extern.slf4j.Slf4j;
-
-/** Uploads API definition to SwaggerHub */
-@Slf4j
-@Getter
-@Setter
-public class UploadTask extends DefaultTask {
-    private static final Logger LOGGER = Logging.getLogger(UploadTask.class);
-    @Input private String owner;
-    @Input private String api;
-    @Input private String version;
-    @Input private String token;
-    @InputFile private String inputFile;
-    @Input private Boolean isPrivate = false;
-    @Input @Optional private String host = "api.swaggerhub.com";
-    @Input @Optional private Integer port = 443;
-    @Input @Optional private String protocol = "https";
-    @Input @Optional private String format = "json";
-    @Input @Optional private String oas = "2.0";
-    @Input @Optional private Boolean onPremise = false;
-    @Input @Optional private String onPremiseAPISuffix = "v1";
-
-    @Internal private SwaggerHubClient swaggerHubClient;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLMapper;
+
+/**
+ * Uploads API definitions to SwaggerHub. Either a single definition configured directly on the
+ * task, several {@link #definition(Action) definitions} or a whole set of {@link
+ * #inputFiles(Object...) files}, published concurrently.
+ */
+public abstract class UploadTask extends SwaggerHubTask {
+    static final String SKIP_NEVER = "never";
+    static final String SKIP_CACHED = "cached";
+    static final String SKIP_REMOTE = "remote";
+
+    private final List<UploadDefinition> definitions = new ArrayList<>();
+
+    public UploadTask() {
+        getIsPrivate().convention(false);
+        getFormat().convention("json");
+        getOas().convention("2.0");
+        getSkipUnchanged().convention(SKIP_NEVER);
+        getMaxParallelUploads().convention(4);
+        getSetDefaultVersion().convention(false);
+        getDigestFile()
+                .convention(
+                        getProjectLayout()
+                                .getBuildDirectory()
+                                .file("swaggerhub/" + getName() + "-digests.properties"));
+    }
+
+    @Input
+    @Optional
+    public abstract Property<String> getOwner();
+
+    @Input
+    @Optional
+    public abstract Property<String> getApi();
+
+    @Input
+    @Optional
+    public abstract Property<String> getVersion();
+
+    @Input
+    public abstract Property<String> getToken();
+
+    @InputFile
+    @Optional
+    public abstract RegularFileProperty getInputFile();
+
+    /**
+     * Definitions uploaded under their file name without extension as API name, in {@code yaml}
+     * format for {@code .yaml}/{@code .yml} files. The version is taken from the task or, if not
+     * set there, from {@code info.version} of each definition.
+     */
+    @InputFiles
+    @Optional
+    public abstract ConfigurableFileCollection getInputFiles();
+
+    @Input
+    public abstract Property<Boolean> getIsPrivate();
+
+    @Input
+    @Optional
+    public abstract Property<String> getFormat();
+
+    @Input
+    @Optional
+    public abstract Property<String> getOas();
+
+    /**
+     * When to skip uploading a definition that has not changed: {@code never}, {@code cached}
+     * (compare with the digest of the last upload from this build directory, falling back to the
+     * definition on SwaggerHub) or {@code remote} (always compare with SwaggerHub).
+     */
+    @Input
+    public abstract Property<String> getSkipUnchanged();
+
+    /** Only schedules the uploads, so not an input. */
+    @Internal
+    public abstract Property<Integer> getMaxParallelUploads();
+
+    /**
+     * Makes every uploaded version the default version of its API, once all uploads have succeeded.
+     */
+    @Input
+    public abstract Property<Boolean> getSetDefaultVersion();
+
+    @Nested
+    public List<UploadDefinition> getDefinitions() {
+        return definitions;
+    }
+
+    /** Digests of the definitions uploaded by this task, used by {@code skipUnchanged 'cached'}. */
+    @Internal
+    public abstract RegularFileProperty getDigestFile();
+
+    @Inject
+    protected abstract ObjectFactory getObjectFactory();
+
+    public void owner(String owner) {
+        getOwner().set(owner);
+    }
+
+    public void api(String api) {
+        getApi().set(api);
+    }
+
+    public void version(String version) {
+        getVersion().set(version);
+    }
+
+    public void token(String token) {
+        getToken().set(token);
+    }
+
+    public void inputFile(Object inputFile) {
+        getInputFile().set(getProject().file(inputFile));
+    }
+
+    public void inputFiles(Object... inputFiles) {
+        getInputFiles().from(inputFiles);
+    }
+
+    public void isPrivate(Boolean isPrivate) {
+        getIsPrivate().set(isPrivate);
+    }
+
+    public void format(String format) {
+        getFormat().set(format);
+    }
+
+    public void oas(String oas) {
+        getOas().set(oas);
+    }
+
+    public void skipUnchanged(String skipUnchanged) {
+        getSkipUnchanged().set(skipUnchanged);
+    }
+
+    public void maxParallelUploads(Integer maxParallelUploads) {
+        getMaxParallelUploads().set(maxParallelUploads);
+    }
+
+    public void setDefaultVersion(Boolean setDefaultVersion) {
+        getSetDefaultVersion().set(setDefaultVersion);
+    }
+
+    /** Adds another API definition to be uploaded by this task. */
+    public void definition(Action<? super UploadDefinition> action) {
+        UploadDefinition definition = getObjectFactory().newInstance(UploadDefinition.class);
+        action.execute(definition);
+        definitions.add(definition);
+    }
 
     @TaskAction
     public void uploadDefinition() throws GradleException {
-        swaggerHubClient =
-                SwaggerHubClient.createOnPremise(
-                        host, port, protocol, token, onPremise, onPremiseAPISuffix);
-        LOGGER.info(
-                "Uploading to {}: api: {}, owner: {}, version: {}, inputFile: {}, format: {},"
-                        + " isPrivate: {}, oas: {}, onPremise: {}, onPremiseAPISuffix: {} ",
-                host,
+        String skipUnchanged = getSkipUnchanged().get();
+        if (!List.of(SKIP_NEVER, SKIP_CACHED, SKIP_REMOTE).contains(skipUnchanged)) {
+            throw new GradleException(
+                    "Unsupported skipUnchanged value '"
+                            + skipUnchanged
+                            + "', expected one of never, cached, remote");
+        }
+        List<UploadItem> toUpload = collectDefinitions();
+        if (toUpload.isEmpty()) {
+            throw new GradleException(
+                    "No API definition configured, set api/owner/version/inputFile, inputFiles or"
+                            + " add a definition block");
+        }
+
+        getWorkerExecutor()
+                .noIsolation()
+                .submit(
+                        UploadWorkAction.class,
+                        parameters -> {
+                            connect(parameters, getToken());
+                            parameters.getDefinitions().set(toUpload);
+                            parameters.getMaxParallelUploads().set(getMaxParallelUploads());
+                            parameters.getSetDefaultVersion().set(getSetDefaultVersion());
+                            parameters.getSkipUnchanged().set(skipUnchanged);
+                            parameters.getDigestFile().set(getDigestFile());
+                        });
+    }
+
+    /** All configured definitions with the task defaults applied. */
+    private List<UploadItem> collectDefinitions() {
+        List<UploadItem> result = new ArrayList<>();
+        if (getApi().isPresent() || getInputFile().isPresent()) {
+            result.add(
+                    toItem(
+                            "task " + getName(),
+                            getOwner().getOrNull(),
+                            getApi().getOrNull(),
+                            getVersion().getOrNull(),
+                            getInputFile().isPresent() ? getInputFile().get().getAsFile() : null,
+                            null,
+                            null,
+                            null));
+        }
+        for (UploadDefinition definition : definitions) {
+            result.add(
+                    toItem(
+                            "API definition " + definition,
+                            definition.getOwner().getOrNull(),
+                            definition.getApi().getOrNull(),
+                            definition.getVersion().getOrNull(),
+                            definition.getInputFile().isPresent()
+                                    ? definition.getInputFile().get().getAsFile()
+                                    : null,
+                            definition.getFormat().getOrNull(),
+                            definition.getIsPrivate().getOrNull(),
+                            definition.getOas().getOrNull()));
+        }
+        for (File file : getInputFiles().getFiles()) {
+            String name = file.getName();
+            int extension = name.lastIndexOf('.');
+            String format =
+                    name.endsWith(".yaml") || name.endsWith(".yml") ? "yaml" : getFormat().get();
+            result.add(
+                    toItem(
+                            "file " + file,
+                            getOwner().getOrNull(),
+                            extension > 0 ? name.substring(0, extension) : name,
+                            getVersion().isPresent()
+                                    ? getVersion().get()
+                                    : readInfoVersion(file, format),
+                            file,
+                            format,
+                            null,
+                            null));
+        }
+
+        Set<String> coordinates = new HashSet<>();
+        for (UploadItem item : result) {
+            if (!coordinates.add(item.toString())) {
+                throw new GradleException("API definition " + item + " is configured twice");
+            }
+        }
+        return result;
+    }
+
+    private UploadItem toItem(
+            String description,
+            String owner,
+            String api,
+            String version,
+            File inputFile,
+            String format,
+            Boolean isPrivate,
+            String oas) {
+        String resolvedOwner = owner != null ? owner : getOwner().getOrNull();
+        String resolvedVersion = version != null ? version : getVersion().getOrNull();
+        requireValue(resolvedOwner, "owner", description);
+        requireValue(api, "api", description);
+        requireValue(resolvedVersion, "version", description);
+        requireValue(inputFile, "inputFile", description);
+        return new UploadItem(
+                resolvedOwner,
                 api,
-                owner,
-                version,
-                inputFile,
-                format,
-                isPrivate,
-                oas,
+                resolvedVersion,
                 inputFile,
-                onPremise,
-                onPremiseAPISuffix);
+                format != null ? format : getFormat().getOrNull(),
+                isPrivate != null ? isPrivate : getIsPrivate().get(),
+                oas != null ? oas : getOas().getOrNull());
+    }
+
+    private void requireValue(Object value, String property, String description) {
+        if (value == null) {
+            throw new GradleException(
+                    "No value has been specified for property '"
+                            + property
+                            + "' of "
+                            + description);
+        }
+    }
 
+    private static String readInfoVersion(File file, String format) {
+        ObjectMapper mapper = "yaml".equals(format) ? new YAMLMapper() : new ObjectMapper();
         try {
-            String content =
-                    new String(Files.readAllBytes(Paths.get(inputFile)), StandardCharsets.UTF_8);
-
-            SwaggerHubRequest swaggerHubRequest =
-                    SwaggerHubRequest.builder()
-                            .api(api)
-                            .owner(owner)
-                            .version(version)
-                            .format(format)
-                            .swagger(content)
-                            .oas(oas)
-                            .onPremise(onPremise)
-                            .onPremiseAPISuffix(onPremiseAPISuffix)
-                            .isPrivate(isPrivate)
-                            .build();
-
-            swaggerHubClient.saveDefinition(swaggerHubRequest);
-        } catch (IOException | GradleException e) {
-            throw new GradleException(e.getMessage(), e);
+            JsonNode version = mapper.readTree(file).path("info").path("version");
+            return version.isValueNode() ? version.asText() : null;
+        } catch (IOException e) {
+            throw new GradleException("Failed to read API definition " + file, e);
         }
     }
 }
@@ -0,0 +1,283 @@
+/* Copyright 2025 Ludy87
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.ludy87.swagger.swaggerhub.v2.tasks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+
+import io.github.ludy87.swagger.swaggerhub.v2.client.BatchExecutor;
+import io.github.ludy87.swagger.swaggerhub.v2.client.DefinitionDigest;
+import io.github.ludy87.swagger.swaggerhub.v2.client.DigestStore;
+import io.github.ludy87.swagger.swaggerhub.v2.client.SwaggerHubClient;
+import io.github.ludy87.swagger.swaggerhub.v2.client.SwaggerHubRequest;
+
+/**
+ * Uploads the definitions of an {@link UploadTask}. Default versions are only moved once every
+ * upload has succeeded, one after another so that a failure leaves the rest unchanged.
+ */
+public abstract class UploadWorkAction extends SwaggerHubWorkAction<UploadWorkAction.Parameters> {
+    private static final Logger LOGGER = Logging.getLogger(UploadWorkAction.class);
+
+    public interface Parameters extends SwaggerHubWorkParameters {
+        /** Definitions with owner, version, format, isPrivate and oas already filled in. */
+        ListProperty<UploadItem> getDefinitions();
+
+        Property<Integer> getMaxParallelUploads();
+
+        Property<Boolean> getSetDefaultVersion();
+
+        Property<String> getSkipUnchanged();
+
+        RegularFileProperty getDigestFile();
+    }
+
+    @Override
+    public void execute() {
+        Parameters parameters = getParameters();
+        SwaggerHubClient swaggerHubClient = getSwaggerHubClient();
+        List<UploadItem> definitions = parameters.getDefinitions().get();
+        int parallelism = parameters.getMaxParallelUploads().getOrElse(1);
+        String skipUnchanged = parameters.getSkipUnchanged().getOrElse(UploadTask.SKIP_NEVER);
+
+        DigestStore digestStore = null;
+        if (!UploadTask.SKIP_NEVER.equals(skipUnchanged)) {
+            try {
+                digestStore =
+                        DigestStore.load(parameters.getDigestFile().get().getAsFile().toPath());
+            } catch (IOException e) {
+                throw new GradleException(e.getMessage(), e);
+            }
+        }
+
+        AtomicInteger skipped = new AtomicInteger();
+        DigestStore digests = digestStore;
+        try {
+            BatchExecutor.execute(
+                    definitions,
+                    parallelism,
+                    getMaxVirtualThreads(),
+                    UploadItem::toString,
+                    definition -> {
+                        if (!upload(swaggerHubClient, definition, skipUnchanged, digests)) {
+                            skipped.incrementAndGet();
+                        }
+                    });
+        } finally {
+            if (digestStore != null) {
+                try {
+                    digestStore.save();
+                } catch (IOException e) {
+                    LOGGER.warn("Could not store definition digests: {}", e.getMessage());
+                }
+            }
+        }
+        if (definitions.size() > 1) {
+            LOGGER.lifecycle(
+                    "Uploaded {} of {} API definitions, {} unchanged",
+                    definitions.size() - skipped.get(),
+                    definitions.size(),
+                    skipped.get());
+        }
+
+        if (parameters.getSetDefaultVersion().getOrElse(false)) {
+            setDefaultVersions(swaggerHubClient, definitions);
+        }
+    }
+
+    /**
+     * Stops at the first failure. Default versions moved before it cannot be taken back, the error
+     * names them.
+     */
+    private void setDefaultVersions(SwaggerHubClient swaggerHubClient, List<UploadItem> definitions)
+            throws GradleException {
+        List<String> moved = new ArrayList<>();
+        for (UploadItem definition : definitions) {
+            try {
+                setDefaultVersion(swaggerHubClient, definition);
+            } catch (GradleException e) {
+                throw new GradleException(
+                        "Could not set the default version of "
+                                + definition
+                                + (moved.isEmpty()
+                                        ? ""
+                                        : ", default versions already set: "
+                                                + String.join(", ", moved))
+                                + ". "
+                                + e.getMessage(),
+                        e);
+            }
+            moved.add(definition.toString());
+        }
+    }
+
+    /**
+     * @return {@code false} if the upload was skipped because the definition is unchanged
+     */
+    private boolean upload(
+            SwaggerHubClient swaggerHubClient,
+            UploadItem definition,
+            String skipUnchanged,
+            DigestStore digestStore)
+            throws GradleException {
+        LOGGER.info(
+                "Uploading to {}: api: {}, owner: {}, version: {}, inputFile: {}, format: {},"
+                        + " isPrivate: {}, oas: {}, onPremise: {}, onPremiseAPISuffix: {} ",
+                swaggerHubClient.getHost(),
+                definition.getApi(),
+                definition.getOwner(),
+                definition.getVersion(),
+                definition.getInputFile(),
+                definition.getFormat(),
+                definition.getIsPrivate(),
+                definition.getOas(),
+                swaggerHubClient.getOnPremise(),
+                swaggerHubClient.getOnPremiseAPISuffix());
+
+        try {
+            SwaggerHubRequest swaggerHubRequest =
+                    SwaggerHubRequest.builder()
+                            .api(definition.getApi())
+                            .owner(definition.getOwner())
+                            .version(definition.getVersion())
+                            .format(definition.getFormat())
+                            .definitionFile(definition.getInputFile())
+                            .oas(definition.getOas())
+                            .onPremise(swaggerHubClient.getOnPremise())
+                            .onPremiseAPISuffix(swaggerHubClient.getOnPremiseAPISuffix())
+                            .isPrivate(definition.getIsPrivate())
+                            .build();
+
+            if (digestStore == null) {
+                swaggerHubClient.saveDefinition(swaggerHubRequest);
+                return true;
+            }
+            return uploadIfChanged(swaggerHubClient, swaggerHubRequest, skipUnchanged, digestStore);
+        } catch (GradleException e) {
+            throw new GradleException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Compares the digest of the local definition with the one of the last upload or, if that is
+     * unknown or {@code remote} was requested, with the definition currently on SwaggerHub. A
+     * definition last uploaded with another {@code isPrivate} or {@code oas} is always uploaded.
+     */
+    private boolean uploadIfChanged(
+            SwaggerHubClient swaggerHubClient,
+            SwaggerHubRequest swaggerHubRequest,
+            String skipUnchanged,
+            DigestStore digestStore)
+            throws GradleException {
+        String key =
+                swaggerHubClient.getHost()
+                        + "/"
+                        + swaggerHubRequest.getOwner()
+                        + "/"
+                        + swaggerHubRequest.getApi()
+                        + "/"
+                        + swaggerHubRequest.getVersion();
+        String localDigest;
+        try {
+            localDigest =
+                    DefinitionDigest.of(
+                            swaggerHubRequest.getDefinitionFile().toPath(),
+                            swaggerHubRequest.getFormat());
+        } catch (IOException e) {
+            // leave it to SwaggerHub to report what is wrong with the definition
+            LOGGER.info("Could not compute the definition digest: {}", e.getMessage());
+            swaggerHubClient.saveDefinition(swaggerHubRequest);
+            return true;
+        }
+
+        // the content digest does not show a change of visibility or OAS version
+        String settings =
+                ";isPrivate="
+                        + swaggerHubRequest.getIsPrivate()
+                        + ";oas="
+                        + swaggerHubRequest.getOas();
+        String recorded = digestStore.getDigest(key);
+        boolean changed;
+        if (recorded != null && !recorded.endsWith(settings)) {
+            changed = true;
+        } else {
+            String knownDigest =
+                    UploadTask.SKIP_CACHED.equals(skipUnchanged) && recorded != null
+                            ? recorded.substring(0, recorded.length() - settings.length())
+                            : getRemoteDigest(swaggerHubClient, swaggerHubRequest);
+            changed = !localDigest.equals(knownDigest);
+        }
+        if (changed) {
+            swaggerHubClient.saveDefinition(swaggerHubRequest);
+        } else {
+            LOGGER.lifecycle(
+                    "API definition {}/{}/{} unchanged, skipping upload",
+                    swaggerHubRequest.getOwner(),
+                    swaggerHubRequest.getApi(),
+                    swaggerHubRequest.getVersion());
+        }
+        digestStore.update(key, localDigest + settings);
+        return changed;
+    }
+
+    private String getRemoteDigest(
+            SwaggerHubClient swaggerHubClient, SwaggerHubRequest swaggerHubRequest)
+            throws GradleException {
+        SwaggerHubRequest remoteRequest =
+                SwaggerHubRequest.builder()
+                        .api(swaggerHubRequest.getApi())
+                        .owner(swaggerHubRequest.getOwner())
+                        .version(swaggerHubRequest.getVersion())
+                        .format(swaggerHubRequest.getFormat())
+                        .resolved(false)
+                        .build();
+        String remoteDefinition = swaggerHubClient.findDefinition(remoteRequest);
+        if (remoteDefinition == null) {
+            return null;
+        }
+        try {
+            return DefinitionDigest.of(remoteDefinition, swaggerHubRequest.getFormat());
+        } catch (IOException e) {
+            // not comparable, uploading is always safe
+            LOGGER.info("Could not parse the definition on SwaggerHub: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private void setDefaultVersion(SwaggerHubClient swaggerHubClient, UploadItem definition)
+            throws GradleException {
+        LOGGER.info(
+                "Setting default version of {}/{} to {}",
+                definition.getOwner(),
+                definition.getApi(),
+                definition.getVersion());
+        swaggerHubClient.saveDefinitionPUT(
+                SwaggerHubRequest.builder()
+                        .api(definition.getApi())
+                        .owner(definition.getOwner())
+                        .version(definition.getVersion())
+                        .onPremise(swaggerHubClient.getOnPremise())
+                        .onPremiseAPISuffix(swaggerHubClient.getOnPremiseAPISuffix())
+                        .build());
+    }
+}
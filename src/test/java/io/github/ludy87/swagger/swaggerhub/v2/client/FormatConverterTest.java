@@ -0,0 +1,58 @@
+/* Copyright 2025 Ludy87
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.ludy87.swagger.swaggerhub.v2.client;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class FormatConverterTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Test
+    public void keepsStringsThatLookLikeOtherYamlScalars() throws IOException {
+        String json =
+                "{\"example\": [\"1.0\", \"1e3\", \"0x1F\", \"0o17\", \"017\", \"1_000\","
+                        + " \"2024-01-01\", \"2024-01-01T10:00:00Z\", \".inf\", \"-.Inf\","
+                        + " \".nan\", \"yes\", \"off\", \"~\", \"null\", \"\", \"190:20:30\"],"
+                        + " \"number\": 1e3, \"flag\": true}";
+
+        String yaml = convert(json, "json", "yaml");
+
+        assertEquals(yaml, MAPPER.readTree(json), MAPPER.readTree(convert(yaml, "yaml", "json")));
+    }
+
+    @Test
+    public void leavesPlainStringsUnquoted() throws IOException {
+        String yaml = convert("{\"title\": \"Pet store\"}", "json", "yaml");
+
+        assertEquals("title: Pet store\n", yaml);
+    }
+
+    private static String convert(String source, String sourceFormat, String targetFormat)
+            throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        FormatConverter.convert(
+                new ByteArrayInputStream(source.getBytes(UTF_8)), sourceFormat, out, targetFormat);
+        return out.toString(UTF_8);
+    }
+}
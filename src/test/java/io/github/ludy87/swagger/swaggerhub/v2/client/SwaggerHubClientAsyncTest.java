@@ -0,0 +1,221 @@
+/* Copyright 2025 Ludy87
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.ludy87.swagger.swaggerhub.v2.client;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.gradle.api.GradleException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
+
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.OkHttpClient;
+
+public class SwaggerHubClientAsyncTest {
+
+    @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+    private static final String DEFINITION_PATH = "/apis/testUser/TestAPI/1.1.0";
+    private static final String TOKEN = "dUmMyTokEn.1234abc";
+    private WireMockServer wireMockServer;
+
+    private final SwaggerHubRequest request =
+            SwaggerHubRequest.builder().api("TestAPI").owner("testUser").version("1.1.0").build();
+    private final CountDownLatch callEnded = new CountDownLatch(1);
+    private final CountDownLatch callCanceled = new CountDownLatch(1);
+    private final OkHttpClient okHttpClient =
+            new OkHttpClient.Builder()
+                    .eventListener(
+                            new EventListener() {
+                                @Override
+                                public void callEnd(Call call) {
+                                    callEnded.countDown();
+                                }
+
+                                @Override
+                                public void canceled(Call call) {
+                                    callCanceled.countDown();
+                                }
+                            })
+                    .build();
+
+    @Before
+    public void setup() {
+        wireMockServer = new WireMockServer(options().dynamicPort());
+        wireMockServer.start();
+    }
+
+    @After
+    public void tearDown() {
+        wireMockServer.stop();
+    }
+
+    @Test
+    public void getDefinitionAsyncCompletesWithTheDefinition() throws Exception {
+        wireMockServer.stubFor(
+                get(urlPathEqualTo(DEFINITION_PATH))
+                        .willReturn(
+                                aResponse().withStatus(200).withBody("{\"openapi\":\"3.0.0\"}")));
+
+        String definition =
+                client(RetryPolicy.none(), null)
+                        .getDefinitionAsync(request)
+                        .get(10, TimeUnit.SECONDS);
+
+        assertEquals("{\"openapi\":\"3.0.0\"}", definition);
+    }
+
+    @Test
+    public void retryAfterRateLimitWaitsForTheRateLimiter() throws Exception {
+        wireMockServer.stubFor(
+                get(urlPathEqualTo(DEFINITION_PATH))
+                        .willReturn(aResponse().withStatus(200).withBody("{}")));
+        wireMockServer.stubFor(
+                get(urlPathEqualTo(DEFINITION_PATH))
+                        .inScenario("rate limit")
+                        .whenScenarioStateIs(Scenario.STARTED)
+                        .willReturn(aResponse().withStatus(429).withHeader("Retry-After", "0"))
+                        .willSetStateTo("allowed"));
+        // one call a second, so the immediate retry has to wait for its permit
+        RateLimiter rateLimiter = new RateLimiter(1, 1);
+
+        String definition =
+                client(RetryPolicy.builder().maxAttempts(2).build(), rateLimiter)
+                        .getDefinitionAsync(request)
+                        .get(10, TimeUnit.SECONDS);
+
+        assertEquals("{}", definition);
+        wireMockServer.verify(2, getRequestedFor(urlPathEqualTo(DEFINITION_PATH)));
+        assertEquals(2, rateLimiter.getAcquisitions());
+        assertEquals(1, rateLimiter.getDelayedAcquisitions());
+    }
+
+    @Test
+    public void cancellingCancelsTheCallInFlight() throws Exception {
+        wireMockServer.stubFor(
+                get(urlPathEqualTo(DEFINITION_PATH))
+                        .willReturn(aResponse().withStatus(200).withFixedDelay(10_000)));
+
+        CompletableFuture<String> future =
+                client(RetryPolicy.none(), null).getDefinitionAsync(request);
+        awaitRequests(1);
+        future.cancel(true);
+
+        assertTrue(callCanceled.await(5, TimeUnit.SECONDS));
+        assertTrue(future.isCancelled());
+    }
+
+    @Test
+    public void interruptingTheWaitCancelsTheCall() throws Exception {
+        wireMockServer.stubFor(
+                get(urlPathEqualTo(DEFINITION_PATH))
+                        .willReturn(aResponse().withStatus(200).withFixedDelay(10_000)));
+
+        CompletableFuture<String> future =
+                client(RetryPolicy.none(), null).getDefinitionAsync(request);
+        awaitRequests(1);
+        Thread.currentThread().interrupt();
+        try {
+            Futures.await(future, "the definition");
+            fail("the wait was not interrupted");
+        } catch (GradleException e) {
+            assertTrue(Thread.interrupted());
+        }
+
+        assertTrue(callCanceled.await(5, TimeUnit.SECONDS));
+        assertTrue(future.isCancelled());
+    }
+
+    @Test
+    public void cancellingDropsThePendingRetry() throws Exception {
+        wireMockServer.stubFor(
+                get(urlPathEqualTo(DEFINITION_PATH))
+                        .willReturn(aResponse().withStatus(429).withHeader("Retry-After", "1")));
+
+        CompletableFuture<String> future =
+                client(RetryPolicy.builder().maxAttempts(2).build(), null)
+                        .getDefinitionAsync(request);
+        assertTrue(callEnded.await(5, TimeUnit.SECONDS));
+        future.cancel(true);
+        Thread.sleep(1500);
+
+        assertTrue(future.isCancelled());
+        wireMockServer.verify(1, getRequestedFor(urlPathEqualTo(DEFINITION_PATH)));
+    }
+
+    @Test
+    public void tracesHeadersWithoutTheToken() throws Exception {
+        wireMockServer.stubFor(
+                get(urlPathEqualTo(DEFINITION_PATH))
+                        .willReturn(
+                                aResponse()
+                                        .withStatus(200)
+                                        .withHeader("ETag", "\"v1\"")
+                                        .withBody("{}")));
+        Path logFile = temporaryFolder.getRoot().toPath().resolve("debug.log");
+        DebugLogger debugLogger = DebugLogger.create(DebugLogger.Level.TRACE, logFile, 16);
+
+        client(RetryPolicy.none(), null).toBuilder()
+                .debugLogger(debugLogger)
+                .build()
+                .getDefinitionAsync(request)
+                .get(10, TimeUnit.SECONDS);
+        debugLogger.close();
+
+        String log = new String(Files.readAllBytes(logFile), StandardCharsets.UTF_8);
+        assertTrue(log, log.contains("request headers"));
+        assertTrue(log, log.contains("response headers"));
+        assertTrue(log, log.contains("ETag: "));
+        assertFalse(log, log.contains(TOKEN));
+    }
+
+    private SwaggerHubClient client(RetryPolicy retryPolicy, RateLimiter rateLimiter) {
+        return SwaggerHubClient.builder()
+                .host("localhost")
+                .port(wireMockServer.port())
+                .protocol("http")
+                .token(TOKEN)
+                .onPremise(false)
+                .client(okHttpClient)
+                .retryPolicy(retryPolicy)
+                .rateLimiter(rateLimiter)
+                .build();
+    }
+
+    private void awaitRequests(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (wireMockServer.getAllServeEvents().size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+    }
+}
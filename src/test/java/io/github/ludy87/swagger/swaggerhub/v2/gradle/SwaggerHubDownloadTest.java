@@ -32,24 +32,37 @@
 package io.github.ludy87.swagger.swaggerhub.v2.gradle;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.absent;
 import static com.github.tomakehurst.wiremock.client.WireMock.anyUrl;
+import static com.github.tomakehurst.wiremock.client.WireMock.containing;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
 import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.headRequestedFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlMatching;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
 import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static junit.framework.TestCase.assertTrue;
+import static org.gradle.testkit.runner.TaskOutcome.FROM_CACHE;
 import static org.gradle.testkit.runner.TaskOutcome.SUCCESS;
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.net.URISyntaxException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 import org.apache.commons.io.FileUtils;
 import org.gradle.testkit.runner.BuildResult;
@@ -59,8 +72,15 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLMapper;
 import com.github.tomakehurst.wiremock.client.WireMock;
 import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
+import com.github.tomakehurst.wiremock.verification.LoggedRequest;
+
+import io.github.ludy87.swagger.swaggerhub.v2.client.BatchExecutor;
 
 public class SwaggerHubDownloadTest {
     private static final String DOWNLOAD_TASK = "swaggerhubDownload";
@@ -170,11 +190,1292 @@ public class SwaggerHubDownloadTest {
                 getRequestedFor(urlEqualTo("/apis/swagger-hub/test-api/1.0.0?resolved=true")));
     }
 
-    private BuildResult executeTask() {
+    @Test
+    public void downloadsMultipleDefinitionsInOneTask() throws IOException {
+        stubFor(
+                WireMock.get(urlPathEqualTo("/apis/swagger-hub/test-api/1.0.0"))
+                        .willReturn(aResponse().withBodyFile("TestAPI.json")));
+        stubFor(
+                WireMock.get(urlPathEqualTo("/apis/swagger-hub/other-api/2.0.0"))
+                        .willReturn(aResponse().withBody("{\"other\": true}")));
+        Path otherOutputFile = Paths.get(testProjectDir.getRoot().toString(), "otherAPI.json");
+
+        String buildFileContent =
+                "plugins { id 'io.github.ludy87.swagger.swaggerhub.v2' }\n"
+                        + DOWNLOAD_TASK
+                        + " {\n"
+                        + "    protocol 'http'\n"
+                        + "    host 'localhost'\n"
+                        + "    port "
+                        + wireMockRule.port()
+                        + "\n"
+                        + "    maxParallelDownloads 2\n"
+                        + definitionBlock("test-api", "1.0.0", filePath)
+                        + definitionBlock(
+                                "other-api", "2.0.0", otherOutputFile.toString().replace("\\", "/"))
+                        + "}\n";
+
+        Files.write(buildFile.toPath(), buildFileContent.getBytes());
+
+        BuildResult result = executeTask();
+
+        assertEquals(SUCCESS, result.task(":" + DOWNLOAD_TASK).getOutcome());
+        assertThat(
+                FileUtils.readFileToString(outputFile.toFile(), UTF_8),
+                containsString("This is a simple API"));
+        assertThat(
+                FileUtils.readFileToString(otherOutputFile.toFile(), UTF_8),
+                containsString("other"));
+    }
+
+    @Test
+    public void downloadsMultipleDefinitionsOnVirtualThreads() throws IOException {
+        stubFor(
+                WireMock.get(urlPathEqualTo("/apis/swagger-hub/test-api/1.0.0"))
+                        .willReturn(aResponse().withBodyFile("TestAPI.json")));
+        stubFor(
+                WireMock.get(urlPathEqualTo("/apis/swagger-hub/other-api/2.0.0"))
+                        .willReturn(aResponse().withBody("{\"other\": true}")));
+        Path otherOutputFile = Paths.get(testProjectDir.getRoot().toString(), "otherAPI.json");
+
+        String buildFileContent =
+                "plugins { id 'io.github.ludy87.swagger.swaggerhub.v2' }\n"
+                        + "swaggerhub {\n"
+                        + "    virtualThreads = true\n"
+                        + "    maxVirtualThreads = 8\n"
+                        + "}\n"
+                        + DOWNLOAD_TASK
+                        + " {\n"
+                        + "    protocol 'http'\n"
+                        + "    host 'localhost'\n"
+                        + "    port "
+                        + wireMockRule.port()
+                        + "\n"
+                        + "    maxParallelDownloads 2\n"
+                        + definitionBlock("test-api", "1.0.0", filePath)
+                        + definitionBlock(
+                                "other-api", "2.0.0", otherOutputFile.toString().replace("\\", "/"))
+                        + "}\n";
+
+        Files.write(buildFile.toPath(), buildFileContent.getBytes());
+
+        BuildResult result = executeTask("--info");
+
+        assertEquals(SUCCESS, result.task(":" + DOWNLOAD_TASK).getOutcome());
+        assertThat(
+                FileUtils.readFileToString(otherOutputFile.toFile(), UTF_8),
+                containsString("other"));
+        // the build runs on the test JVM, which falls back to platform threads before Java 21
+        assertEquals(
+                !BatchExecutor.isVirtualThreadsSupported(),
+                result.getOutput().contains("Virtual threads need Java 21"));
+    }
+
+    @Test
+    public void convertsFormatsLocallyFromOneDownload() throws IOException {
+        stubFor(
+                WireMock.get(urlPathEqualTo("/apis/swagger-hub/test-api/1.0.0"))
+                        .withHeader("Accept", containing("json"))
+                        .willReturn(aResponse().withBodyFile("TestAPI.json")));
+        Path yamlOutputFile = Paths.get(testProjectDir.getRoot().toString(), "testAPI.yaml");
+
+        String buildFileContent =
+                "plugins { id 'io.github.ludy87.swagger.swaggerhub.v2' }\n"
+                        + DOWNLOAD_TASK
+                        + " {\n"
+                        + "    protocol 'http'\n"
+                        + "    host 'localhost'\n"
+                        + "    port "
+                        + wireMockRule.port()
+                        + "\n"
+                        + "    convertLocally true\n"
+                        + definitionBlock("test-api", "1.0.0", filePath)
+                        + "    definition {\n"
+                        + "        owner 'swagger-hub'\n"
+                        + "        api 'test-api'\n"
+                        + "        version '1.0.0'\n"
+                        + "        format 'yaml'\n"
+                        + "        outputFile '"
+                        + yamlOutputFile.toString().replace("\\", "/")
+                        + "'\n"
+                        + "    }\n"
+                        + "}\n";
+
+        Files.write(buildFile.toPath(), buildFileContent.getBytes());
+
+        BuildResult result = executeTask();
+
+        assertEquals(SUCCESS, result.task(":" + DOWNLOAD_TASK).getOutcome());
+        WireMock.verify(1, getRequestedFor(urlPathEqualTo("/apis/swagger-hub/test-api/1.0.0")));
+        assertEquals(
+                new ObjectMapper().readTree(outputFile.toFile()),
+                new YAMLMapper().readTree(yamlOutputFile.toFile()));
+        assertThat(
+                FileUtils.readFileToString(yamlOutputFile.toFile(), UTF_8),
+                containsString("This is a simple API"));
+    }
+
+    @Test
+    public void resolvesReferencesLocally() throws IOException {
+        String domainUrl =
+                "http://localhost:" + wireMockRule.port() + "/domains/swagger-hub/common/1.0.0";
+        String api =
+                "{\"openapi\": \"3.0.0\", \"components\": {\"schemas\": {"
+                        + "\"Pet\": {\"type\": \"string\"},"
+                        + "\"Pets\": {\"items\": {\"$ref\": \"#/components/schemas/Pet\"}},"
+                        + "\"Problem\": {\"$ref\": \""
+                        + domainUrl
+                        + "#/components/schemas/Error\"}}}}";
+        String domain =
+                "{\"components\": {\"schemas\": {"
+                        + "\"Error\": {\"properties\": {\"code\": {\"$ref\":"
+                        + " \"#/components/schemas/Code\"}}},"
+                        + "\"Code\": {\"type\": \"integer\"}}}}";
+        stubFor(
+                WireMock.get(urlPathEqualTo("/apis/swagger-hub/test-api/1.0.0"))
+                        .withQueryParam("resolved", equalTo("false"))
+                        .willReturn(aResponse().withBody(api)));
+        stubFor(
+                WireMock.get(urlPathEqualTo("/apis/swagger-hub/other-api/2.0.0"))
+                        .withQueryParam("resolved", equalTo("false"))
+                        .willReturn(aResponse().withBody(api)));
+        stubFor(
+                WireMock.get(urlPathEqualTo("/domains/swagger-hub/common/1.0.0"))
+                        .willReturn(aResponse().withBody(domain)));
+        Path otherOutputFile = Paths.get(testProjectDir.getRoot().toString(), "otherAPI.yaml");
+
+        String buildFileContent =
+                "plugins { id 'io.github.ludy87.swagger.swaggerhub.v2' }\n"
+                        + DOWNLOAD_TASK
+                        + " {\n"
+                        + "    protocol 'http'\n"
+                        + "    host 'localhost'\n"
+                        + "    port "
+                        + wireMockRule.port()
+                        + "\n"
+                        + "    resolved true\n"
+                        + "    resolveLocally true\n"
+                        + definitionBlock("test-api", "1.0.0", filePath)
+                        + "    definition {\n"
+                        + "        owner 'swagger-hub'\n"
+                        + "        api 'other-api'\n"
+                        + "        version '2.0.0'\n"
+                        + "        format 'yaml'\n"
+                        + "        outputFile '"
+                        + otherOutputFile.toString().replace("\\", "/")
+                        + "'\n"
+                        + "    }\n"
+                        + "}\n";
+
+        Files.write(buildFile.toPath(), buildFileContent.getBytes());
+
+        BuildResult result = executeTask();
+
+        assertEquals(SUCCESS, result.task(":" + DOWNLOAD_TASK).getOutcome());
+        WireMock.verify(1, getRequestedFor(urlPathEqualTo("/domains/swagger-hub/common/1.0.0")));
+        JsonNode schemas =
+                new ObjectMapper().readTree(outputFile.toFile()).at("/components/schemas");
+        assertEquals("integer", schemas.at("/Problem/properties/code/type").asText());
+        assertEquals("#/components/schemas/Pet", schemas.at("/Pets/items/$ref").asText());
+        assertEquals(
+                schemas,
+                new YAMLMapper().readTree(otherOutputFile.toFile()).at("/components/schemas"));
+    }
+
+    @Test
+    public void resolvesReferencesSeparatelyPerToken() throws IOException {
+        String api =
+                "{\"openapi\": \"3.0.0\", \"components\": {\"schemas\": {"
+                        + "\"Problem\": {\"$ref\": \"http://localhost:"
+                        + wireMockRule.port()
+                        + "/domains/swagger-hub/common/1.0.0#/components/schemas/Error\"}}}}";
+        stubFor(
+                WireMock.get(urlPathEqualTo("/apis/swagger-hub/test-api/1.0.0"))
+                        .willReturn(aResponse().withBody(api)));
+        for (String token : Arrays.asList("token-a", "token-b")) {
+            stubFor(
+                    WireMock.get(urlPathEqualTo("/domains/swagger-hub/common/1.0.0"))
+                            .withHeader("Authorization", equalTo(token))
+                            .willReturn(
+                                    aResponse()
+                                            .withBody(
+                                                    "{\"components\": {\"schemas\": {\"Error\":"
+                                                            + " {\"description\": \""
+                                                            + token
+                                                            + "\"}}}}")));
+        }
+        Path otherOutputFile = Paths.get(testProjectDir.getRoot().toString(), "otherAPI.json");
+        String settings =
+                "    protocol 'http'\n"
+                        + "    host 'localhost'\n"
+                        + "    port "
+                        + wireMockRule.port()
+                        + "\n"
+                        + "    resolved true\n"
+                        + "    resolveLocally true\n";
+
+        String buildFileContent =
+                "plugins { id 'io.github.ludy87.swagger.swaggerhub.v2' }\n"
+                        + DOWNLOAD_TASK
+                        + " {\n"
+                        + settings
+                        + "    token 'token-a'\n"
+                        + definitionBlock("test-api", "1.0.0", filePath)
+                        + "}\n"
+                        + "tasks.register('otherDownload',"
+                        + " io.github.ludy87.swagger.swaggerhub.v2.tasks.DownloadTask) {\n"
+                        + settings
+                        + "    token 'token-b'\n"
+                        + definitionBlock(
+                                "test-api", "1.0.0", otherOutputFile.toString().replace("\\", "/"))
+                        + "}\n";
+
+        Files.write(buildFile.toPath(), buildFileContent.getBytes());
+
+        BuildResult result = executeTask("otherDownload");
+
+        assertEquals(SUCCESS, result.task(":otherDownload").getOutcome());
+        WireMock.verify(2, getRequestedFor(urlPathEqualTo("/domains/swagger-hub/common/1.0.0")));
+        ObjectMapper mapper = new ObjectMapper();
+        assertEquals(
+                "token-a",
+                mapper.readTree(outputFile.toFile())
+                        .at("/components/schemas/Problem/description")
+                        .asText());
+        assertEquals(
+                "token-b",
+                mapper.readTree(otherOutputFile.toFile())
+                        .at("/components/schemas/Problem/description")
+                        .asText());
+    }
+
+    @Test
+    public void downloadsReferencedDomainsOnce() throws IOException {
+        String domains = "http://localhost:" + wireMockRule.port() + "/domains/swagger-hub/";
+        String api =
+                "{\"openapi\": \"3.0.0\", \"components\": {\"schemas\": {"
+                        + "\"Problem\": {\"$ref\": \""
+                        + domains
+                        + "common/1.0.0#/components/schemas/Error\"}}}}";
+        String common =
+                "{\"components\": {\"schemas\": {\"Error\": {\"properties\": {\"code\":"
+                        + " {\"$ref\": \""
+                        + domains
+                        + "types/2.0.0#/components/schemas/Code\"}}}}}}";
+        for (String path :
+                Arrays.asList(
+                        "/apis/swagger-hub/test-api/1.0.0", "/apis/swagger-hub/other-api/2.0.0")) {
+            stubFor(
+                    WireMock.get(urlPathEqualTo(path))
+                            .willReturn(aResponse().withHeader("ETag", "\"v1\"").withBody(api)));
+            stubFor(
+                    WireMock.get(urlPathEqualTo(path))
+                            .withHeader("If-None-Match", equalTo("\"v1\""))
+                            .willReturn(aResponse().withStatus(304)));
+        }
+        stubFor(
+                WireMock.get(urlPathEqualTo("/domains/swagger-hub/common/1.0.0"))
+                        .willReturn(aResponse().withBody(common)));
+        stubFor(
+                WireMock.get(urlPathEqualTo("/domains/swagger-hub/types/2.0.0"))
+                        .willReturn(
+                                aResponse()
+                                        .withBody(
+                                                "{\"components\": {\"schemas\": {\"Code\":"
+                                                        + " {\"type\": \"integer\"}}}}")));
+        Path otherOutputFile = Paths.get(testProjectDir.getRoot().toString(), "otherAPI.json");
+
+        String buildFileContent =
+                "plugins { id 'io.github.ludy87.swagger.swaggerhub.v2' }\n"
+                        + DOWNLOAD_TASK
+                        + " {\n"
+                        + "    protocol 'http'\n"
+                        + "    host 'localhost'\n"
+                        + "    port "
+                        + wireMockRule.port()
+                        + "\n"
+                        + "    referencesDirectory 'refs'\n"
+                        + definitionBlock("test-api", "1.0.0", filePath)
+                        + definitionBlock(
+                                "other-api", "2.0.0", otherOutputFile.toString().replace("\\", "/"))
+                        + "}\n";
+
+        Files.write(buildFile.toPath(), buildFileContent.getBytes());
+
+        assertEquals(SUCCESS, executeTask().task(":" + DOWNLOAD_TASK).getOutcome());
+        // the unchanged definitions are kept with their rewritten references
+        BuildResult result = executeTask("--rerun-tasks");
+
+        assertEquals(SUCCESS, result.task(":" + DOWNLOAD_TASK).getOutcome());
+        WireMock.verify(
+                1,
+                getRequestedFor(urlPathEqualTo("/apis/swagger-hub/test-api/1.0.0"))
+                        .withHeader("If-None-Match", equalTo("\"v1\"")));
+        WireMock.verify(2, getRequestedFor(urlPathEqualTo("/domains/swagger-hub/common/1.0.0")));
+        WireMock.verify(2, getRequestedFor(urlPathEqualTo("/domains/swagger-hub/types/2.0.0")));
+        ObjectMapper mapper = new ObjectMapper();
+        for (Path definition : Arrays.asList(outputFile, otherOutputFile)) {
+            assertEquals(
+                    "refs/domains/swagger-hub/common/1.0.0.json#/components/schemas/Error",
+                    mapper.readTree(definition.toFile())
+                            .at("/components/schemas/Problem/$ref")
+                            .asText());
+        }
+        Path commonFile =
+                testProjectDir
+                        .getRoot()
+                        .toPath()
+                        .resolve("refs/domains/swagger-hub/common/1.0.0.json");
+        assertEquals(
+                "../types/2.0.0.json#/components/schemas/Code",
+                mapper.readTree(commonFile.toFile())
+                        .at("/components/schemas/Error/properties/code/$ref")
+                        .asText());
+        assertTrue(Files.exists(commonFile.resolveSibling("../types/2.0.0.json").normalize()));
+    }
+
+    @Test
+    public void keepsReferencesLeavingTheReferencesDirectory() throws IOException {
+        String ref =
+                "http://localhost:"
+                        + wireMockRule.port()
+                        + "/domains/..%2F..%2Fevil/x/1.0#/components/schemas/Error";
+        String api =
+                "{\"openapi\": \"3.0.0\", \"components\": {\"schemas\": {"
+                        + "\"Problem\": {\"$ref\": \""
+                        + ref
+                        + "\"}}}}";
+        stubFor(
+                WireMock.get(urlPathEqualTo("/apis/swagger-hub/test-api/1.0.0"))
+                        .willReturn(aResponse().withBody(api)));
+        stubFor(
+                WireMock.get(urlMatching(".*evil.*"))
+                        .willReturn(aResponse().withBody("{\"components\": {}}")));
+
+        String buildFileContent =
+                "plugins { id 'io.github.ludy87.swagger.swaggerhub.v2' }\n"
+                        + DOWNLOAD_TASK
+                        + " {\n"
+                        + "    protocol 'http'\n"
+                        + "    host 'localhost'\n"
+                        + "    port "
+                        + wireMockRule.port()
+                        + "\n"
+                        + "    referencesDirectory 'refs'\n"
+                        + definitionBlock("test-api", "1.0.0", filePath)
+                        + "}\n";
+
+        Files.write(buildFile.toPath(), buildFileContent.getBytes());
+
+        assertEquals(SUCCESS, executeTask().task(":" + DOWNLOAD_TASK).getOutcome());
+        WireMock.verify(0, getRequestedFor(urlMatching(".*evil.*")));
+        assertFalse(Files.exists(testProjectDir.getRoot().toPath().resolve("evil")));
+        assertEquals(
+                ref,
+                new ObjectMapper()
+                        .readTree(outputFile.toFile())
+                        .at("/components/schemas/Problem/$ref")
+                        .asText());
+    }
+
+    @Test
+    public void reportsAllFailedDefinitionsTogether() throws IOException {
+        stubFor(
+                WireMock.get(urlPathEqualTo("/apis/swagger-hub/test-api/1.0.0"))
+                        .willReturn(aResponse().withBodyFile("TestAPI.json")));
+        stubFor(
+                WireMock.get(urlPathEqualTo("/apis/swagger-hub/missing-api/1.0.0"))
+                        .willReturn(WireMock.notFound().withBody("unknown api")));
+        stubFor(
+                WireMock.get(urlPathEqualTo("/apis/swagger-hub/broken-api/1.0.0"))
+                        .willReturn(WireMock.serverError().withBody("boom")));
+
+        String outputDir = testProjectDir.getRoot().toString().replace("\\", "/");
+        String buildFileContent =
+                "plugins { id 'io.github.ludy87.swagger.swaggerhub.v2' }\n"
+                        + DOWNLOAD_TASK
+                        + " {\n"
+                        + "    protocol 'http'\n"
+                        + "    host 'localhost'\n"
+                        + "    port "
+                        + wireMockRule.port()
+                        + "\n"
+                        + definitionBlock("missing-api", "1.0.0", outputDir + "/missing.json")
+                        + definitionBlock("test-api", "1.0.0", filePath)
+                        + definitionBlock("broken-api", "1.0.0", outputDir + "/broken.json")
+                        + "}\n";
+
+        Files.write(buildFile.toPath(), buildFileContent.getBytes());
+
+        BuildResult result =
+                GradleRunner.create()
+                        .withPluginClasspath()
+                        .withProjectDir(testProjectDir.getRoot())
+                        .withArguments(DOWNLOAD_TASK)
+                        .buildAndFail();
+
+        assertThat(result.getOutput(), containsString("2 of 3 operations failed"));
+        assertThat(result.getOutput(), containsString("swagger-hub/missing-api/1.0.0"));
+        assertThat(result.getOutput(), containsString("swagger-hub/broken-api/1.0.0"));
+        assertTrue(Files.exists(outputFile));
+    }
+
+    @Test
+    public void skipsWriteWhenDefinitionIsNotModified() throws IOException {
+        stubFor(
+                WireMock.get(urlPathEqualTo("/apis/swagger-hub/test-api/1.0.0"))
+                        .willReturn(
+                                aResponse()
+                                        .withHeader("ETag", "\"rev-1\"")
+                                        .withBodyFile("TestAPI.json")));
+        String buildFileContent =
+                "plugins { id 'io.github.ludy87.swagger.swaggerhub.v2' }\n"
+                        + DOWNLOAD_TASK
+                        + " {\n"
+                        + "    protocol 'http'\n"
+                        + "    host 'localhost'\n"
+                        + "    port "
+                        + wireMockRule.port()
+                        + "\n"
+                        + "    api 'test-api'\n"
+                        + "    owner 'swagger-hub'\n"
+                        + "    version '1.0.0'\n"
+                        + "    outputFile '"
+                        + filePath
+                        + "'\n"
+                        + "}";
+
+        Files.write(buildFile.toPath(), buildFileContent.getBytes());
+
+        assertEquals(SUCCESS, executeTask().task(":" + DOWNLOAD_TASK).getOutcome());
+
+        stubFor(
+                WireMock.get(urlPathEqualTo("/apis/swagger-hub/test-api/1.0.0"))
+                        .withHeader("If-None-Match", equalTo("\"rev-1\""))
+                        .willReturn(aResponse().withStatus(304)));
+
+        BuildResult result =
+                GradleRunner.create()
+                        .withPluginClasspath()
+                        .withProjectDir(testProjectDir.getRoot())
+                        .withArguments(DOWNLOAD_TASK, "--info")
+                        .build();
+
+        assertEquals(SUCCESS, result.task(":" + DOWNLOAD_TASK).getOutcome());
+        assertThat(result.getOutput(), containsString("unchanged"));
+        assertThat(
+                FileUtils.readFileToString(outputFile.toFile(), UTF_8),
+                containsString("This is a simple API"));
+    }
+
+    @Test
+    public void usesConfiguredReadTimeout() throws IOException {
+        stubFor(
+                WireMock.get(urlPathEqualTo("/apis/swagger-hub/test-api/1.0.0"))
+                        .willReturn(aResponse().withFixedDelay(3000).withBodyFile("TestAPI.json")));
+        String buildFileContent =
+                "plugins { id 'io.github.ludy87.swagger.swaggerhub.v2' }\n"
+                        + "swaggerhub {\n"
+                        + "    readTimeout = 1\n"
+                        + "    protocols = ['http/1.1']\n"
+                        + "}\n"
+                        + DOWNLOAD_TASK
+                        + " {\n"
+                        + "    protocol 'http'\n"
+                        + "    host 'localhost'\n"
+                        + "    port "
+                        + wireMockRule.port()
+                        + "\n"
+                        + "    api 'test-api'\n"
+                        + "    owner 'swagger-hub'\n"
+                        + "    version '1.0.0'\n"
+                        + "    outputFile '"
+                        + filePath
+                        + "'\n"
+                        + "}";
+
+        Files.write(buildFile.toPath(), buildFileContent.getBytes());
+
+        BuildResult result =
+                GradleRunner.create()
+                        .withPluginClasspath()
+                        .withProjectDir(testProjectDir.getRoot())
+                        .withArguments(DOWNLOAD_TASK, "--stacktrace")
+                        .buildAndFail();
+
+        assertThat(result.getOutput(), containsString("timeout"));
+    }
+
+    @Test
+    public void tasksShareTheClientService() throws IOException {
+        stubFor(
+                WireMock.get(urlPathEqualTo("/apis/swagger-hub/test-api/1.0.0"))
+                        .willReturn(aResponse().withBodyFile("TestAPI.json")));
+        String otherFilePath =
+                Paths.get(testProjectDir.getRoot().toString(), "otherAPI.json")
+                        .toString()
+                        .replace("\\", "/");
+        String taskBody =
+                "    protocol 'http'\n"
+                        + "    host 'localhost'\n"
+                        + "    port "
+                        + wireMockRule.port()
+                        + "\n"
+                        + "    api 'test-api'\n"
+                        + "    owner 'swagger-hub'\n"
+                        + "    version '1.0.0'\n";
+        String buildFileContent =
+                "plugins { id 'io.github.ludy87.swagger.swaggerhub.v2' }\n"
+                        + "swaggerhub {\n"
+                        + "    maxParallelUsages = 1\n"
+                        + "}\n"
+                        + DOWNLOAD_TASK
+                        + " {\n"
+                        + taskBody
+                        + "    outputFile '"
+                        + filePath
+                        + "'\n"
+                        + "}\n"
+                        + "tasks.register('otherDownload', "
+                        + "io.github.ludy87.swagger.swaggerhub.v2.tasks.DownloadTask) {\n"
+                        + taskBody
+                        + "    outputFile '"
+                        + otherFilePath
+                        + "'\n"
+                        + "}\n";
+
+        Files.write(buildFile.toPath(), buildFileContent.getBytes());
+
+        BuildResult result =
+                GradleRunner.create()
+                        .withPluginClasspath()
+                        .withProjectDir(testProjectDir.getRoot())
+                        .withArguments(DOWNLOAD_TASK, "otherDownload", "--parallel")
+                        .build();
+
+        assertEquals(SUCCESS, result.task(":" + DOWNLOAD_TASK).getOutcome());
+        assertEquals(SUCCESS, result.task(":otherDownload").getOutcome());
+        assertTrue(Files.exists(Paths.get(otherFilePath)));
+    }
+
+    @Test
+    public void supportsConfigurationCache() throws IOException {
+        stubFor(
+                WireMock.get(urlPathEqualTo("/apis/swagger-hub/test-api/1.0.0"))
+                        .willReturn(aResponse().withBodyFile("TestAPI.json")));
+        String buildFileContent =
+                "plugins { id 'io.github.ludy87.swagger.swaggerhub.v2' }\n"
+                        + DOWNLOAD_TASK
+                        + " {\n"
+                        + "    protocol = 'http'\n"
+                        + "    host = 'localhost'\n"
+                        + "    port = "
+                        + wireMockRule.port()
+                        + "\n"
+                        + "    api = 'test-api'\n"
+                        + "    owner = 'swagger-hub'\n"
+                        + "    version = '1.0.0'\n"
+                        + "    outputFile = file('"
+                        + filePath
+                        + "')\n"
+                        + definitionBlock(
+                                "test-api",
+                                "1.0.0",
+                                testProjectDir.getRoot().toString().replace("\\", "/")
+                                        + "/copy.json")
+                        + "}";
+
+        Files.write(buildFile.toPath(), buildFileContent.getBytes());
+
+        BuildResult first = executeTask("--configuration-cache");
+        Files.delete(outputFile);
+        BuildResult second = executeTask("--configuration-cache");
+
+        assertThat(first.getOutput(), containsString("Configuration cache entry stored"));
+        assertThat(second.getOutput(), containsString("Configuration cache entry reused"));
+        assertEquals(SUCCESS, second.task(":" + DOWNLOAD_TASK).getOutcome());
+        assertTrue(Files.exists(outputFile));
+    }
+
+    @Test
+    public void retriesUnavailableServer() throws IOException {
+        stubFor(
+                WireMock.get(urlPathEqualTo("/apis/swagger-hub/test-api/1.0.0"))
+                        .inScenario("retry")
+                        .whenScenarioStateIs(Scenario.STARTED)
+                        .willReturn(aResponse().withStatus(503).withHeader("Retry-After", "0"))
+                        .willSetStateTo("available"));
+        stubFor(
+                WireMock.get(urlPathEqualTo("/apis/swagger-hub/test-api/1.0.0"))
+                        .inScenario("retry")
+                        .whenScenarioStateIs("available")
+                        .willReturn(aResponse().withBodyFile("TestAPI.json")));
+        String buildFileContent =
+                "plugins { id 'io.github.ludy87.swagger.swaggerhub.v2' }\n"
+                        + "swaggerhub {\n"
+                        + "    retry {\n"
+                        + "        maxAttempts = 2\n"
+                        + "    }\n"
+                        + "}\n"
+                        + DOWNLOAD_TASK
+                        + " {\n"
+                        + "    protocol 'http'\n"
+                        + "    host 'localhost'\n"
+                        + "    port "
+                        + wireMockRule.port()
+                        + "\n"
+                        + "    api 'test-api'\n"
+                        + "    owner 'swagger-hub'\n"
+                        + "    version '1.0.0'\n"
+                        + "    outputFile '"
+                        + filePath
+                        + "'\n"
+                        + "}";
+
+        Files.write(buildFile.toPath(), buildFileContent.getBytes());
+
+        BuildResult result = executeTask();
+
+        assertEquals(SUCCESS, result.task(":" + DOWNLOAD_TASK).getOutcome());
+        assertThat(
+                FileUtils.readFileToString(outputFile.toFile(), UTF_8),
+                containsString("This is a simple API"));
+        WireMock.verify(2, getRequestedFor(urlPathEqualTo("/apis/swagger-hub/test-api/1.0.0")));
+    }
+
+    @Test
+    public void resumesInterruptedDownload() throws IOException, URISyntaxException {
+        byte[] definition =
+                Files.readAllBytes(
+                        Paths.get(
+                                getClass()
+                                        .getClassLoader()
+                                        .getResource("__files/TestAPI.json")
+                                        .toURI()));
+        int half = definition.length / 2;
+        // announces the whole definition but breaks off after the first half
+        stubFor(
+                WireMock.get(urlPathEqualTo("/apis/swagger-hub/test-api/1.0.0"))
+                        .withHeader("Range", absent())
+                        .willReturn(
+                                aResponse()
+                                        .withHeader("ETag", "\"v1\"")
+                                        .withHeader(
+                                                "Content-Length", String.valueOf(definition.length))
+                                        .withBody(Arrays.copyOf(definition, half))));
+        stubFor(
+                WireMock.get(urlPathEqualTo("/apis/swagger-hub/test-api/1.0.0"))
+                        .withHeader("Range", equalTo("bytes=" + half + "-"))
+                        .withHeader("If-Range", equalTo("\"v1\""))
+                        .willReturn(
+                                aResponse()
+                                        .withStatus(206)
+                                        .withHeader("ETag", "\"v1\"")
+                                        .withHeader(
+                                                "Content-Range",
+                                                "bytes "
+                                                        + half
+                                                        + "-"
+                                                        + (definition.length - 1)
+                                                        + "/"
+                                                        + definition.length)
+                                        .withBody(
+                                                Arrays.copyOfRange(
+                                                        definition, half, definition.length))));
+        String buildFileContent =
+                "plugins { id 'io.github.ludy87.swagger.swaggerhub.v2' }\n"
+                        + "swaggerhub {\n"
+                        + "    downloadCompression = 'none'\n"
+                        + "    retry {\n"
+                        + "        maxAttempts = 2\n"
+                        + "        backoffBase = 10\n"
+                        + "    }\n"
+                        + "}\n"
+                        + DOWNLOAD_TASK
+                        + " {\n"
+                        + "    protocol 'http'\n"
+                        + "    host 'localhost'\n"
+                        + "    port "
+                        + wireMockRule.port()
+                        + "\n"
+                        + "    api 'test-api'\n"
+                        + "    owner 'swagger-hub'\n"
+                        + "    version '1.0.0'\n"
+                        + "    outputFile '"
+                        + filePath
+                        + "'\n"
+                        + "}";
+        Files.write(buildFile.toPath(), buildFileContent.getBytes());
+
+        assertEquals(SUCCESS, executeTask().task(":" + DOWNLOAD_TASK).getOutcome());
+
+        assertEquals(new String(definition, UTF_8), Files.readString(outputFile, UTF_8));
+        WireMock.verify(
+                getRequestedFor(urlPathEqualTo("/apis/swagger-hub/test-api/1.0.0"))
+                        .withHeader("Range", equalTo("bytes=" + half + "-")));
+        assertFalse(Files.exists(Paths.get(filePath + ".part")));
+    }
+
+    @Test
+    public void resumesDownloadFromCompressingServer() throws IOException, URISyntaxException {
+        byte[] definition =
+                Files.readAllBytes(
+                        Paths.get(
+                                getClass()
+                                        .getClassLoader()
+                                        .getResource("__files/TestAPI.json")
+                                        .toURI()));
+        int half = definition.length / 2;
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(definition);
+        }
+        String path = "/apis/swagger-hub/test-api/1.0.0";
+        // compresses whenever it is allowed to, and breaks off uncompressed transfers halfway
+        stubFor(
+                WireMock.get(urlPathEqualTo(path))
+                        .withHeader("Accept-Encoding", containing("gzip"))
+                        .willReturn(
+                                aResponse()
+                                        .withHeader("Content-Encoding", "gzip")
+                                        .withHeader("ETag", "\"v1-gzip\"")
+                                        .withHeader(
+                                                "Content-Length", String.valueOf(compressed.size()))
+                                        .withBody(Arrays.copyOf(compressed.toByteArray(), 10))));
+        stubFor(
+                WireMock.get(urlPathEqualTo(path))
+                        .withHeader("Accept-Encoding", equalTo("identity"))
+                        .withHeader("Range", absent())
+                        .willReturn(
+                                aResponse()
+                                        .withHeader("ETag", "\"v1\"")
+                                        .withHeader(
+                                                "Content-Length", String.valueOf(definition.length))
+                                        .withBody(Arrays.copyOf(definition, half))));
+        stubFor(
+                WireMock.get(urlPathEqualTo(path))
+                        .withHeader("Accept-Encoding", equalTo("identity"))
+                        .withHeader("Range", equalTo("bytes=" + half + "-"))
+                        .withHeader("If-Range", equalTo("\"v1\""))
+                        .willReturn(
+                                aResponse()
+                                        .withStatus(206)
+                                        .withHeader("ETag", "\"v1\"")
+                                        .withHeader(
+                                                "Content-Range",
+                                                "bytes "
+                                                        + half
+                                                        + "-"
+                                                        + (definition.length - 1)
+                                                        + "/"
+                                                        + definition.length)
+                                        .withBody(
+                                                Arrays.copyOfRange(
+                                                        definition, half, definition.length))));
+        String buildFileContent =
+                "plugins { id 'io.github.ludy87.swagger.swaggerhub.v2' }\n"
+                        + "swaggerhub {\n"
+                        + "    retry {\n"
+                        + "        maxAttempts = 2\n"
+                        + "        backoffBase = 10\n"
+                        + "    }\n"
+                        + "}\n"
+                        + DOWNLOAD_TASK
+                        + " {\n"
+                        + "    protocol 'http'\n"
+                        + "    host 'localhost'\n"
+                        + "    port "
+                        + wireMockRule.port()
+                        + "\n"
+                        + "    api 'test-api'\n"
+                        + "    owner 'swagger-hub'\n"
+                        + "    version '1.0.0'\n"
+                        + "    outputFile '"
+                        + filePath
+                        + "'\n"
+                        + "}";
+        Files.write(buildFile.toPath(), buildFileContent.getBytes());
+
+        assertEquals(SUCCESS, executeTask().task(":" + DOWNLOAD_TASK).getOutcome());
+
+        assertEquals(new String(definition, UTF_8), Files.readString(outputFile, UTF_8));
+        WireMock.verify(
+                0,
+                getRequestedFor(urlPathEqualTo(path))
+                        .withHeader("Accept-Encoding", containing("gzip")));
+        WireMock.verify(
+                getRequestedFor(urlPathEqualTo(path))
+                        .withHeader("Range", equalTo("bytes=" + half + "-")));
+        assertFalse(Files.exists(Paths.get(filePath + ".part")));
+    }
+
+    @Test
+    public void startsOverWhenPartialDownloadIsStale() throws IOException {
+        String path = "/apis/swagger-hub/test-api/1.0.0";
+        stubFor(
+                WireMock.get(urlPathEqualTo(path))
+                        .withHeader("Range", absent())
+                        .willReturn(aResponse().withBodyFile("TestAPI.json")));
+        stubFor(
+                WireMock.get(urlPathEqualTo(path))
+                        .withHeader("Range", equalTo("bytes=5-"))
+                        .willReturn(aResponse().withStatus(416)));
+        // left behind by an interrupted build against an older revision
+        Files.writeString(Paths.get(filePath + ".part"), "stale");
+        Files.writeString(Paths.get(filePath + ".part.validator"), "\"v0\"");
+        String buildFileContent =
+                "plugins { id 'io.github.ludy87.swagger.swaggerhub.v2' }\n"
+                        + "swaggerhub {\n"
+                        + "    downloadCompression = 'none'\n"
+                        + "    retry {\n"
+                        + "        maxAttempts = 1\n"
+                        + "    }\n"
+                        + "}\n"
+                        + DOWNLOAD_TASK
+                        + " {\n"
+                        + "    protocol 'http'\n"
+                        + "    host 'localhost'\n"
+                        + "    port "
+                        + wireMockRule.port()
+                        + "\n"
+                        + "    api 'test-api'\n"
+                        + "    owner 'swagger-hub'\n"
+                        + "    version '1.0.0'\n"
+                        + "    outputFile '"
+                        + filePath
+                        + "'\n"
+                        + "}";
+        Files.write(buildFile.toPath(), buildFileContent.getBytes());
+
+        assertEquals(SUCCESS, executeTask().task(":" + DOWNLOAD_TASK).getOutcome());
+
+        assertThat(Files.readString(outputFile, UTF_8), containsString("This is a simple API"));
+        WireMock.verify(
+                1, getRequestedFor(urlPathEqualTo(path)).withHeader("Range", equalTo("bytes=5-")));
+        WireMock.verify(1, getRequestedFor(urlPathEqualTo(path)).withHeader("Range", absent()));
+        assertFalse(Files.exists(Paths.get(filePath + ".part")));
+    }
+
+    @Test
+    public void writesRequestMetricsReport() throws IOException {
+        stubFor(
+                WireMock.get(urlPathEqualTo("/apis/swagger-hub/test-api/1.0.0"))
+                        .inScenario("retry")
+                        .whenScenarioStateIs(Scenario.STARTED)
+                        .willReturn(aResponse().withStatus(502))
+                        .willSetStateTo("available"));
+        stubFor(
+                WireMock.get(urlPathEqualTo("/apis/swagger-hub/test-api/1.0.0"))
+                        .inScenario("retry")
+                        .whenScenarioStateIs("available")
+                        .willReturn(aResponse().withBodyFile("TestAPI.json")));
+        String buildFileContent =
+                "plugins { id 'io.github.ludy87.swagger.swaggerhub.v2' }\n"
+                        + "swaggerhub {\n"
+                        + "    retry {\n"
+                        + "        maxAttempts = 2\n"
+                        + "    }\n"
+                        + "}\n"
+                        + DOWNLOAD_TASK
+                        + " {\n"
+                        + "    protocol 'http'\n"
+                        + "    host 'localhost'\n"
+                        + "    port "
+                        + wireMockRule.port()
+                        + "\n"
+                        + "    api 'test-api'\n"
+                        + "    owner 'swagger-hub'\n"
+                        + "    version '1.0.0'\n"
+                        + "    outputFile '"
+                        + filePath
+                        + "'\n"
+                        + "}";
+
+        Files.write(buildFile.toPath(), buildFileContent.getBytes());
+
+        BuildResult result = executeTask();
+        System.out.println(result.getOutput());
+        for (com.github.tomakehurst.wiremock.stubbing.ServeEvent e : WireMock.getAllServeEvents())
+            System.out.println(
+                    "SERVED " + e.getResponse().getStatus() + " " + e.getRequest().getUrl());
+
+        assertThat(result.getOutput(), containsString("SwaggerHub: 2 calls, 1 retried, 0 failed"));
+        JsonNode report =
+                new ObjectMapper()
+                        .readTree(
+                                testProjectDir
+                                        .getRoot()
+                                        .toPath()
+                                        .resolve("build/reports/swaggerhub/metrics.json")
+                                        .toFile());
+        JsonNode requests = report.get("requests");
+        assertEquals(1, requests.size());
+        JsonNode stats = requests.get(0);
+        assertEquals(":" + DOWNLOAD_TASK, stats.get("task").asText());
+        assertEquals("localhost:" + wireMockRule.port(), stats.get("host").asText());
+        assertEquals(2, stats.get("calls").asInt());
+        assertEquals(1, stats.get("retries").asInt());
+        assertEquals(1, stats.get("statusCodes").get("200").asInt());
+        assertEquals(1, stats.get("statusCodes").get("502").asInt());
+        assertTrue(stats.get("bytesReceived").asLong() > 0);
+    }
+
+    @Test
+    public void writesDebugLog() throws IOException {
+        stubFor(
+                WireMock.get(urlPathEqualTo("/apis/swagger-hub/test-api/1.0.0"))
+                        .willReturn(aResponse().withBodyFile("TestAPI.json")));
+        String buildFileContent =
+                "plugins { id 'io.github.ludy87.swagger.swaggerhub.v2' }\n"
+                        + "swaggerhub { debugLevel = 'trace' }\n"
+                        + DOWNLOAD_TASK
+                        + " {\n"
+                        + "    protocol 'http'\n"
+                        + "    host 'localhost'\n"
+                        + "    port "
+                        + wireMockRule.port()
+                        + "\n"
+                        + "    token 'secret-token'\n"
+                        + "    api 'test-api'\n"
+                        + "    owner 'swagger-hub'\n"
+                        + "    version '1.0.0'\n"
+                        + "    outputFile '"
+                        + filePath
+                        + "'\n"
+                        + "}";
+        Files.write(buildFile.toPath(), buildFileContent.getBytes());
+
+        executeTask();
+
+        String debugLog =
+                Files.readString(
+                        testProjectDir
+                                .getRoot()
+                                .toPath()
+                                .resolve("build/reports/swaggerhub/debug.log"));
+        assertThat(
+                debugLog,
+                containsString(
+                        "GET http://localhost:"
+                                + wireMockRule.port()
+                                + "/apis/swagger-hub/test-api/1.0.0?resolved=false attempt 1: 200"));
+        assertThat(debugLog, containsString("response headers:"));
+        assertFalse(debugLog.contains("secret-token"));
+    }
+
+    @Test
+    public void throttlesCallsWithRateLimit() throws IOException {
+        stubFor(WireMock.get(anyUrl()).willReturn(aResponse().withBodyFile("TestAPI.json")));
+        String outputDir = testProjectDir.getRoot().toString().replace("\\", "/");
+        String buildFileContent =
+                "plugins { id 'io.github.ludy87.swagger.swaggerhub.v2' }\n"
+                        + "swaggerhub {\n"
+                        + "    rateLimit {\n"
+                        + "        requestsPerSecond = 10\n"
+                        + "        burst = 1\n"
+                        + "    }\n"
+                        + "}\n"
+                        + DOWNLOAD_TASK
+                        + " {\n"
+                        + "    protocol 'http'\n"
+                        + "    host 'localhost'\n"
+                        + "    port "
+                        + wireMockRule.port()
+                        + "\n"
+                        + definitionBlock("api-1", "1.0.0", outputDir + "/api-1.json")
+                        + definitionBlock("api-2", "1.0.0", outputDir + "/api-2.json")
+                        + definitionBlock("api-3", "1.0.0", outputDir + "/api-3.json")
+                        + definitionBlock("api-4", "1.0.0", outputDir + "/api-4.json")
+                        + "}\n";
+
+        Files.write(buildFile.toPath(), buildFileContent.getBytes());
+
+        BuildResult result = executeTask("--info");
+
+        assertEquals(SUCCESS, result.task(":" + DOWNLOAD_TASK).getOutcome());
+        assertThat(result.getOutput(), containsString("4 calls, 3 delayed"));
+    }
+
+    @Test
+    public void takesPinnedDefinitionFromBuildCache() throws IOException {
+        stubFor(
+                WireMock.get(urlPathEqualTo("/apis/swagger-hub/test-api/1.0.0"))
+                        .willReturn(aResponse().withBodyFile("TestAPI.json")));
+        writeCachedBuild("    pinned true\n");
+
+        assertEquals(SUCCESS, executeTask("--build-cache").task(":" + DOWNLOAD_TASK).getOutcome());
+        Files.delete(outputFile);
+        // the parallelism is not part of the cache key
+        writeCachedBuild("    pinned true\n    maxParallelDownloads 8\n");
+        assertEquals(
+                FROM_CACHE, executeTask("--build-cache").task(":" + DOWNLOAD_TASK).getOutcome());
+
+        assertTrue(Files.exists(outputFile));
+        WireMock.verify(1, getRequestedFor(urlPathEqualTo("/apis/swagger-hub/test-api/1.0.0")));
+    }
+
+    @Test
+    public void keysBuildCacheOnRemoteRevision() throws IOException {
+        String path = "/apis/swagger-hub/test-api/1.0.0";
+        stubFor(
+                WireMock.get(urlPathEqualTo(path))
+                        .willReturn(aResponse().withBodyFile("TestAPI.json")));
+        stubFor(
+                WireMock.head(urlPathEqualTo(path))
+                        .willReturn(aResponse().withHeader("ETag", "\"1\"")));
+        writeCachedBuild("    checkRevision true\n");
+
+        assertEquals(SUCCESS, executeTask("--build-cache").task(":" + DOWNLOAD_TASK).getOutcome());
+        Files.delete(outputFile);
+        assertEquals(
+                FROM_CACHE, executeTask("--build-cache").task(":" + DOWNLOAD_TASK).getOutcome());
+
+        // a new revision on SwaggerHub misses the cache
+        stubFor(
+                WireMock.head(urlPathEqualTo(path))
+                        .willReturn(aResponse().withHeader("ETag", "\"2\"")));
+        assertEquals(SUCCESS, executeTask("--build-cache").task(":" + DOWNLOAD_TASK).getOutcome());
+        WireMock.verify(2, getRequestedFor(urlPathEqualTo(path)));
+        // one revision check per build
+        WireMock.verify(3, headRequestedFor(urlPathEqualTo(path)));
+    }
+
+    @Test
+    public void retriesRevisionCheckWhenRateLimited() throws IOException {
+        String path = "/apis/swagger-hub/test-api/1.0.0";
+        stubFor(
+                WireMock.get(urlPathEqualTo(path))
+                        .willReturn(aResponse().withBodyFile("TestAPI.json")));
+        stubFor(
+                WireMock.head(urlPathEqualTo(path))
+                        .willReturn(aResponse().withHeader("ETag", "\"1\"")));
+        stubFor(
+                WireMock.head(urlPathEqualTo(path))
+                        .inScenario("rate limit")
+                        .whenScenarioStateIs(Scenario.STARTED)
+                        .willReturn(aResponse().withStatus(429).withHeader("Retry-After", "0"))
+                        .willSetStateTo("allowed"));
+        writeCachedBuild("    checkRevision true\n");
+
+        assertEquals(SUCCESS, executeTask("--build-cache").task(":" + DOWNLOAD_TASK).getOutcome());
+        // the revision check goes through the shared client and its retry policy
+        WireMock.verify(2, headRequestedFor(urlPathEqualTo(path)));
+    }
+
+    @Test
+    public void doesNotCacheUnpinnedDefinitions() throws IOException {
+        stubFor(
+                WireMock.get(urlPathEqualTo("/apis/swagger-hub/test-api/1.0.0"))
+                        .willReturn(aResponse().withBodyFile("TestAPI.json")));
+        writeCachedBuild("");
+
+        executeTask("--build-cache");
+        Files.delete(outputFile);
+        assertEquals(SUCCESS, executeTask("--build-cache").task(":" + DOWNLOAD_TASK).getOutcome());
+        WireMock.verify(2, getRequestedFor(urlPathEqualTo("/apis/swagger-hub/test-api/1.0.0")));
+    }
+
+    @Test
+    public void sharesDefinitionCacheBetweenCheckouts() throws IOException {
+        String path = "/apis/swagger-hub/test-api/1.0.0";
+        stubFor(
+                WireMock.get(urlPathEqualTo(path))
+                        .willReturn(
+                                aResponse()
+                                        .withHeader("ETag", "\"1\"")
+                                        .withBodyFile("TestAPI.json")));
+        stubFor(
+                WireMock.get(urlPathEqualTo(path))
+                        .withHeader("If-None-Match", equalTo("\"1\""))
+                        .willReturn(aResponse().withStatus(304)));
+        String cacheDir =
+                new File(testProjectDir.getRoot(), "definitions").getPath().replace("\\", "/");
+        String cacheBlock =
+                "swaggerhub { cache { enabled = true; directory = file('" + cacheDir + "') } }\n";
+
+        File[] checkouts = {
+            testProjectDir.newFolder("first"),
+            testProjectDir.newFolder("second"),
+            testProjectDir.newFolder("third")
+        };
+        for (File checkout : checkouts) {
+            Files.writeString(
+                    checkout.toPath().resolve("build.gradle"),
+                    "plugins { id 'io.github.ludy87.swagger.swaggerhub.v2' }\n"
+                            + cacheBlock
+                            + DOWNLOAD_TASK
+                            + " {\n"
+                            + "    protocol 'http'\n"
+                            + "    host 'localhost'\n"
+                            + "    port "
+                            + wireMockRule.port()
+                            + "\n"
+                            + "    api 'test-api'\n"
+                            + "    owner 'swagger-hub'\n"
+                            + "    version '1.0.0'\n"
+                            + "    outputFile 'testAPI.json'\n"
+                            + "}");
+        }
+
+        runIn(checkouts[0]);
+        // revalidated with the cached ETag, the body is not transferred again
+        runIn(checkouts[1]);
+        // served from the cache alone
+        runIn(checkouts[2], "--offline");
+
+        for (File checkout : checkouts) {
+            assertThat(
+                    Files.readString(checkout.toPath().resolve("testAPI.json")),
+                    containsString("This is a simple API"));
+        }
+        WireMock.verify(2, getRequestedFor(urlPathEqualTo(path)));
+    }
+
+    @Test
+    public void decodesCompressedDownloads() throws IOException, URISyntaxException {
+        String definition =
+                Files.readString(
+                        Paths.get(
+                                getClass()
+                                        .getClassLoader()
+                                        .getResource("__files/TestAPI.json")
+                                        .toURI()),
+                        UTF_8);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(definition.getBytes(UTF_8));
+        }
+        stubFor(
+                WireMock.get(urlPathEqualTo("/apis/swagger-hub/test-api/1.0.0"))
+                        .willReturn(
+                                aResponse()
+                                        .withHeader("Content-Encoding", "gzip")
+                                        .withBody(compressed.toByteArray())));
+        String buildFileContent =
+                "plugins { id 'io.github.ludy87.swagger.swaggerhub.v2' }\n"
+                        + "swaggerhub {\n"
+                        + "    downloadCompression = 'br'\n"
+                        + "    resumableDownloads = false\n"
+                        + "}\n"
+                        + DOWNLOAD_TASK
+                        + " {\n"
+                        + "    protocol 'http'\n"
+                        + "    host 'localhost'\n"
+                        + "    port "
+                        + wireMockRule.port()
+                        + "\n"
+                        + "    api 'test-api'\n"
+                        + "    owner 'swagger-hub'\n"
+                        + "    version '1.0.0'\n"
+                        + "    outputFile '"
+                        + filePath
+                        + "'\n"
+                        + "}";
+        Files.write(buildFile.toPath(), buildFileContent.getBytes());
+
+        BuildResult result = executeTask("--info");
+
+        assertEquals(definition, Files.readString(outputFile, UTF_8));
+        WireMock.verify(
+                getRequestedFor(urlPathEqualTo("/apis/swagger-hub/test-api/1.0.0"))
+                        .withHeader("Accept-Encoding", containing("br")));
+        assertThat(
+                result.getOutput(),
+                containsString(
+                        "received "
+                                + compressed.size()
+                                + " bytes ("
+                                + definition.getBytes(UTF_8).length
+                                + " decoded)"));
+    }
+
+    @Test
+    public void multiplexesOverCleartextHttp2() throws IOException {
+        stubFor(WireMock.get(anyUrl()).willReturn(aResponse().withBodyFile("TestAPI.json")));
+        String buildFileContent =
+                "plugins { id 'io.github.ludy87.swagger.swaggerhub.v2' }\n"
+                        + "swaggerhub { httpVersion = '2' }\n"
+                        + DOWNLOAD_TASK
+                        + " {\n"
+                        + "    protocol 'http'\n"
+                        + "    host 'localhost'\n"
+                        + "    port "
+                        + wireMockRule.port()
+                        + "\n"
+                        + definitionBlock("api-1", "1.0.0", "api-1.json")
+                        + definitionBlock("api-2", "1.0.0", "api-2.json")
+                        + definitionBlock("api-3", "1.0.0", "api-3.json")
+                        + "}";
+        Files.write(buildFile.toPath(), buildFileContent.getBytes());
+
+        assertEquals(SUCCESS, executeTask().task(":" + DOWNLOAD_TASK).getOutcome());
+
+        List<LoggedRequest> requests = WireMock.findAll(getRequestedFor(anyUrl()));
+        assertEquals(3, requests.size());
+        for (LoggedRequest request : requests) {
+            assertEquals("HTTP/2.0", request.getProtocol());
+        }
+    }
+
+    private void runIn(File projectDir, String... arguments) {
+        List<String> allArguments = new ArrayList<>(Arrays.asList(DOWNLOAD_TASK, "--stacktrace"));
+        allArguments.addAll(Arrays.asList(arguments));
+        GradleRunner.create()
+                .withPluginClasspath()
+                .withProjectDir(projectDir)
+                .withArguments(allArguments)
+                .build();
+    }
+
+    /** Build with a project-local build cache so that tests do not share cache entries. */
+    private void writeCachedBuild(String settings) throws IOException {
+        String cacheDir =
+                new File(testProjectDir.getRoot(), "build-cache").getPath().replace("\\", "/");
+        Files.writeString(
+                testProjectDir.getRoot().toPath().resolve("settings.gradle"),
+                "buildCache { local { directory = file('" + cacheDir + "') } }\n");
+        Files.writeString(
+                buildFile.toPath(),
+                "plugins { id 'io.github.ludy87.swagger.swaggerhub.v2' }\n"
+                        + DOWNLOAD_TASK
+                        + " {\n"
+                        + "    protocol 'http'\n"
+                        + "    host 'localhost'\n"
+                        + "    port "
+                        + wireMockRule.port()
+                        + "\n"
+                        + "    api 'test-api'\n"
+                        + "    owner 'swagger-hub'\n"
+                        + "    version '1.0.0'\n"
+                        + "    outputFile '"
+                        + filePath
+                        + "'\n"
+                        + settings
+                        + "}");
+    }
+
+    private String definitionBlock(String api, String version, String output) {
+        return "    definition {\n"
+                + "        owner 'swagger-hub'\n"
+                + "        api '"
+                + api
+                + "'\n"
+                + "        version '"
+                + version
+                + "'\n"
+                + "        outputFile '"
+                + output
+                + "'\n"
+                + "    }\n";
+    }
+
+    private BuildResult executeTask(String... arguments) {
+        List<String> allArguments = new ArrayList<>(Arrays.asList(DOWNLOAD_TASK, "--stacktrace"));
+        allArguments.addAll(Arrays.asList(arguments));
         return GradleRunner.create()
                 .withPluginClasspath()
                 .withProjectDir(testProjectDir.getRoot())
-                .withArguments(DOWNLOAD_TASK, "--stacktrace")
+                .withArguments(allArguments)
                 .build();
     }
 }
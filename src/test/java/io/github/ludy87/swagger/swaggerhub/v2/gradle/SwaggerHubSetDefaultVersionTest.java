@@ -35,6 +35,7 @@ import org.junit.rules.TemporaryFolder;
 import com.github.tomakehurst.wiremock.WireMockServer;
 import com.github.tomakehurst.wiremock.client.WireMock;
 import com.github.tomakehurst.wiremock.matching.UrlPathPattern;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
 
 import io.github.ludy87.swagger.swaggerhub.v2.client.SwaggerHubRequest;
 
@@ -72,6 +73,22 @@ public class SwaggerHubSetDefaultVersionTest {
         assertEquals(SUCCESS, runBuild(request));
     }
 
+    @Test
+    public void testSetDefaultVersionRetriedWhenRateLimited() throws IOException {
+        SwaggerHubRequest request =
+                SwaggerHubRequest.builder().api(api).owner(owner).version(version).build();
+
+        UrlPathPattern url = setupServerMockingPUT(request, port, token);
+        stubFor(
+                put(url).inScenario("rate limit")
+                        .whenScenarioStateIs(Scenario.STARTED)
+                        .willReturn(aResponse().withStatus(429).withHeader("Retry-After", "0"))
+                        .willSetStateTo("allowed"));
+
+        assertEquals(SUCCESS, runBuild(request));
+        WireMock.verify(2, putRequestedFor(url));
+    }
+
     private TaskOutcome runBuild(SwaggerHubRequest request) throws IOException {
         createBuildFile(request);
 
@@ -114,7 +131,8 @@ public class SwaggerHubSetDefaultVersionTest {
         Files.write(buildFile.toPath(), buildFileContent.getBytes());
     }
 
-    private void setupServerMockingPUT(SwaggerHubRequest request, String port, String token) {
+    private UrlPathPattern setupServerMockingPUT(
+            SwaggerHubRequest request, String port, String token) {
         startMockServer(Integer.parseInt(port));
         String jsonBody = "{\"version\": \"" + request.getVersion() + "\"}";
 
@@ -134,6 +152,7 @@ public class SwaggerHubSetDefaultVersionTest {
                         .withHeader("User-Agent", equalTo("swaggerhub-gradle-plugin"))
                         .withRequestBody(equalTo(jsonBody))
                         .willReturn(noContent()));
+        return url;
     }
 
     private void startMockServer(int port) {
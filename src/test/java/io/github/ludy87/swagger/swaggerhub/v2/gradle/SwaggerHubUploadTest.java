@@ -31,15 +31,27 @@
  */
 package io.github.ludy87.swagger.swaggerhub.v2.gradle;
 
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.containing;
 import static com.github.tomakehurst.wiremock.client.WireMock.created;
 import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
 import static com.github.tomakehurst.wiremock.client.WireMock.equalToIgnoreCase;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.notFound;
+import static com.github.tomakehurst.wiremock.client.WireMock.ok;
+import static com.github.tomakehurst.wiremock.client.WireMock.okJson;
 import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.put;
+import static com.github.tomakehurst.wiremock.client.WireMock.putRequestedFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
 import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
 import static org.gradle.testkit.runner.TaskOutcome.SUCCESS;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.IOException;
@@ -49,6 +61,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 
 import org.apache.commons.lang3.StringUtils;
 import org.gradle.testkit.runner.BuildResult;
@@ -63,6 +76,7 @@ import org.junit.rules.TemporaryFolder;
 import com.github.tomakehurst.wiremock.WireMockServer;
 import com.github.tomakehurst.wiremock.client.WireMock;
 import com.github.tomakehurst.wiremock.matching.UrlPathPattern;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
 
 import io.github.ludy87.swagger.swaggerhub.v2.client.SwaggerHubRequest;
 
@@ -82,6 +96,7 @@ public class SwaggerHubUploadTest {
     private final String port = "8089";
     private final String token = "dUmMyTokEn.1234abc";
     private String swagger;
+    private String extraSettings = "";
 
     @Before
     public void setup() throws IOException {
@@ -186,6 +201,362 @@ public class SwaggerHubUploadTest {
         assertEquals(SUCCESS, runBuild(request));
     }
 
+    @Test
+    public void testUploadRetriedWhenRateLimited() throws IOException, URISyntaxException {
+        copyInputFile(testInputAPI, testProjectDir.getRoot());
+        inputFile = getInputFilePath(testInputAPI);
+        swagger = Files.readString(inputFile, StandardCharsets.UTF_8);
+
+        SwaggerHubRequest request =
+                SwaggerHubRequest.builder()
+                        .api(api)
+                        .owner(owner)
+                        .version(version)
+                        .swagger(swagger)
+                        .build();
+
+        UrlPathPattern url = setupServerMocking(request, port, token);
+        stubFor(
+                post(url)
+                        .inScenario("rate limit")
+                        .whenScenarioStateIs(Scenario.STARTED)
+                        .willReturn(aResponse().withStatus(429).withHeader("Retry-After", "0"))
+                        .willSetStateTo("allowed"));
+
+        assertEquals(SUCCESS, runBuild(request));
+        WireMock.verify(2, postRequestedFor(url));
+    }
+
+    @Test
+    public void testUploadNotRetriedWhenUnavailable() throws IOException, URISyntaxException {
+        copyInputFile(testInputAPI, testProjectDir.getRoot());
+        inputFile = getInputFilePath(testInputAPI);
+
+        SwaggerHubRequest request =
+                SwaggerHubRequest.builder().api(api).owner(owner).version(version).build();
+
+        startMockServer(Integer.parseInt(port));
+        UrlPathPattern url = urlPathEqualTo("/apis/" + owner + "/" + api);
+        stubFor(post(url).willReturn(aResponse().withStatus(503).withBody("unavailable")));
+        createBuildFile(request);
+
+        GradleRunner.create()
+                .withPluginClasspath()
+                .withProjectDir(testProjectDir.getRoot())
+                .withArguments(UPLOAD_TASK)
+                .buildAndFail();
+
+        WireMock.verify(1, postRequestedFor(url));
+    }
+
+    @Test
+    public void testUploadSkippedWhenRemoteUnchanged() throws IOException, URISyntaxException {
+        copyInputFile(testInputAPI, testProjectDir.getRoot());
+        inputFile = getInputFilePath(testInputAPI);
+        swagger = Files.readString(inputFile, StandardCharsets.UTF_8);
+
+        SwaggerHubRequest request =
+                SwaggerHubRequest.builder()
+                        .api(api)
+                        .owner(owner)
+                        .version(version)
+                        .swagger(swagger)
+                        .build();
+
+        UrlPathPattern url = setupServerMocking(request, port, token);
+        UrlPathPattern definitionUrl = urlPathEqualTo("/apis/" + owner + "/" + api + "/" + version);
+        // same content, formatted differently
+        stubFor(get(definitionUrl).willReturn(okJson(swagger.replaceAll("\\s*\\R\\s*", ""))));
+        extraSettings = "    skipUnchanged 'remote'\n";
+        createBuildFile(request);
+
+        BuildResult result = runBuildWithResult();
+
+        assertEquals(SUCCESS, result.task(":" + UPLOAD_TASK).getOutcome());
+        assertTrue(result.getOutput().contains("unchanged, skipping upload"));
+        WireMock.verify(1, getRequestedFor(definitionUrl));
+        WireMock.verify(0, postRequestedFor(url));
+    }
+
+    @Test
+    public void testUploadSkippedWhenCachedDigestMatches() throws IOException, URISyntaxException {
+        copyInputFile(testInputAPI, testProjectDir.getRoot());
+        inputFile = getInputFilePath(testInputAPI);
+        swagger = Files.readString(inputFile, StandardCharsets.UTF_8);
+
+        SwaggerHubRequest request =
+                SwaggerHubRequest.builder()
+                        .api(api)
+                        .owner(owner)
+                        .version(version)
+                        .swagger(swagger)
+                        .build();
+
+        UrlPathPattern url = setupServerMocking(request, port, token);
+        UrlPathPattern definitionUrl = urlPathEqualTo("/apis/" + owner + "/" + api + "/" + version);
+        stubFor(get(definitionUrl).willReturn(notFound()));
+        extraSettings = "    skipUnchanged 'cached'\n";
+        createBuildFile(request);
+
+        assertEquals(SUCCESS, runBuildWithResult().task(":" + UPLOAD_TASK).getOutcome());
+        assertEquals(SUCCESS, runBuildWithResult().task(":" + UPLOAD_TASK).getOutcome());
+
+        // the first build finds nothing on SwaggerHub, the second one knows the uploaded digest
+        WireMock.verify(1, getRequestedFor(definitionUrl));
+        WireMock.verify(1, postRequestedFor(url));
+    }
+
+    @Test
+    public void testUploadNotSkippedWhenVisibilityChanges() throws IOException, URISyntaxException {
+        copyInputFile(testInputAPI, testProjectDir.getRoot());
+        inputFile = getInputFilePath(testInputAPI);
+        swagger = Files.readString(inputFile, StandardCharsets.UTF_8);
+
+        SwaggerHubRequest request =
+                SwaggerHubRequest.builder()
+                        .api(api)
+                        .owner(owner)
+                        .version(version)
+                        .swagger(swagger)
+                        .build();
+
+        UrlPathPattern url = setupServerMocking(request, port, token);
+        stubFor(post(url).withQueryParam("isPrivate", equalTo("true")).willReturn(created()));
+        UrlPathPattern definitionUrl = urlPathEqualTo("/apis/" + owner + "/" + api + "/" + version);
+        stubFor(get(definitionUrl).willReturn(okJson(swagger)));
+        extraSettings = "    skipUnchanged 'cached'\n";
+        createBuildFile(request);
+        assertEquals(SUCCESS, runBuildWithResult().task(":" + UPLOAD_TASK).getOutcome());
+
+        // same content, now private
+        extraSettings = "    skipUnchanged 'cached'\n    isPrivate true\n";
+        createBuildFile(request);
+        assertEquals(SUCCESS, runBuildWithResult().task(":" + UPLOAD_TASK).getOutcome());
+
+        WireMock.verify(0, postRequestedFor(url).withQueryParam("isPrivate", equalTo("false")));
+        WireMock.verify(1, postRequestedFor(url).withQueryParam("isPrivate", equalTo("true")));
+    }
+
+    @Test
+    public void testBatchUploadSetsDefaultVersions() throws IOException, URISyntaxException {
+        Path specs = testProjectDir.newFolder("specs").toPath();
+        copyInputFile("TestAPI.yaml", specs.toFile());
+        Files.move(specs.resolve("TestAPI.yaml"), specs.resolve("FirstAPI.yaml"));
+        copyInputFile("TestAPI.yaml", specs.toFile());
+        Files.move(specs.resolve("TestAPI.yaml"), specs.resolve("SecondAPI.yml"));
+
+        startMockServer(Integer.parseInt(port));
+        stubFor(post(urlPathMatching("/apis/" + owner + "/.*")).willReturn(created()));
+        stubFor(put(urlPathMatching("/apis/" + owner + "/.*/settings/default")).willReturn(ok("")));
+        Files.writeString(
+                buildFile.toPath(),
+                batchBuildFile(
+                        "    inputFiles fileTree('specs')\n" + "    setDefaultVersion true\n"));
+
+        BuildResult result = runBuildWithResult();
+
+        assertEquals(SUCCESS, result.task(":" + UPLOAD_TASK).getOutcome());
+        assertTrue(result.getOutput().contains("Uploaded 2 of 2 API definitions"));
+        for (String uploaded : new String[] {"FirstAPI", "SecondAPI"}) {
+            // the version comes from info.version of the definition
+            WireMock.verify(
+                    postRequestedFor(urlPathEqualTo("/apis/" + owner + "/" + uploaded))
+                            .withQueryParam("version", equalTo("1.0.0"))
+                            .withHeader("Content-Type", containing("yaml")));
+            WireMock.verify(
+                    putRequestedFor(
+                                    urlPathEqualTo(
+                                            "/apis/"
+                                                    + owner
+                                                    + "/"
+                                                    + uploaded
+                                                    + "/settings/default"))
+                            .withRequestBody(containing("1.0.0")));
+        }
+    }
+
+    @Test
+    public void testBatchUploadKeepsDefaultVersionsWhenAnUploadFails()
+            throws IOException, URISyntaxException {
+        copyInputFile(testInputAPI, testProjectDir.getRoot());
+
+        startMockServer(Integer.parseInt(port));
+        stubFor(post(urlPathEqualTo("/apis/" + owner + "/GoodAPI")).willReturn(created()));
+        stubFor(
+                post(urlPathEqualTo("/apis/" + owner + "/BadAPI"))
+                        .willReturn(aResponse().withStatus(400).withBody("invalid")));
+        stubFor(put(urlPathMatching("/apis/" + owner + "/.*/settings/default")).willReturn(ok("")));
+        Files.writeString(
+                buildFile.toPath(),
+                batchBuildFile(
+                        "    version '"
+                                + version
+                                + "'\n"
+                                + "    setDefaultVersion true\n"
+                                + "    definition { api 'GoodAPI'; inputFile '"
+                                + testInputAPI
+                                + "' }\n"
+                                + "    definition { api 'BadAPI'; inputFile '"
+                                + testInputAPI
+                                + "' }\n"));
+
+        BuildResult result =
+                GradleRunner.create()
+                        .withPluginClasspath()
+                        .withProjectDir(testProjectDir.getRoot())
+                        .withArguments(UPLOAD_TASK)
+                        .buildAndFail();
+
+        assertTrue(result.getOutput().contains("1 of 2 operations failed"));
+        WireMock.verify(2, postRequestedFor(urlPathMatching("/apis/" + owner + "/.*")));
+        WireMock.verify(0, putRequestedFor(urlPathMatching(".*")));
+    }
+
+    @Test
+    public void testBatchUploadStopsAtFirstFailedDefaultVersion()
+            throws IOException, URISyntaxException {
+        copyInputFile(testInputAPI, testProjectDir.getRoot());
+
+        startMockServer(Integer.parseInt(port));
+        stubFor(post(urlPathMatching("/apis/" + owner + "/.*")).willReturn(created()));
+        stubFor(put(urlPathMatching("/apis/" + owner + "/.*/settings/default")).willReturn(ok("")));
+        stubFor(
+                put(urlPathEqualTo("/apis/" + owner + "/SecondAPI/settings/default"))
+                        .willReturn(aResponse().withStatus(400).withBody("locked")));
+        StringBuilder definitions = new StringBuilder();
+        for (String name : new String[] {"FirstAPI", "SecondAPI", "ThirdAPI"}) {
+            definitions
+                    .append("    definition { api '")
+                    .append(name)
+                    .append("'; inputFile '")
+                    .append(testInputAPI)
+                    .append("' }\n");
+        }
+        Files.writeString(
+                buildFile.toPath(),
+                batchBuildFile(
+                        "    version '"
+                                + version
+                                + "'\n"
+                                + "    setDefaultVersion true\n"
+                                + definitions));
+
+        BuildResult result =
+                GradleRunner.create()
+                        .withPluginClasspath()
+                        .withProjectDir(testProjectDir.getRoot())
+                        .withArguments(UPLOAD_TASK)
+                        .buildAndFail();
+
+        assertTrue(
+                result.getOutput(),
+                result.getOutput()
+                        .contains(
+                                "Could not set the default version of "
+                                        + owner
+                                        + "/SecondAPI/"
+                                        + version
+                                        + ", default versions already set: "
+                                        + owner
+                                        + "/FirstAPI/"
+                                        + version));
+        WireMock.verify(3, postRequestedFor(urlPathMatching("/apis/" + owner + "/.*")));
+        WireMock.verify(
+                1,
+                putRequestedFor(urlPathEqualTo("/apis/" + owner + "/FirstAPI/settings/default")));
+        WireMock.verify(
+                1,
+                putRequestedFor(urlPathEqualTo("/apis/" + owner + "/SecondAPI/settings/default")));
+        WireMock.verify(
+                0,
+                putRequestedFor(urlPathEqualTo("/apis/" + owner + "/ThirdAPI/settings/default")));
+    }
+
+    @Test
+    public void testUploadCompressedWithGzip() throws IOException, URISyntaxException {
+        copyInputFile(testInputAPI, testProjectDir.getRoot());
+        inputFile = getInputFilePath(testInputAPI);
+        swagger = Files.readString(inputFile, StandardCharsets.UTF_8);
+
+        SwaggerHubRequest request =
+                SwaggerHubRequest.builder()
+                        .api(api)
+                        .owner(owner)
+                        .version(version)
+                        .swagger(swagger)
+                        .build();
+
+        UrlPathPattern url = setupServerMocking(request, port, token);
+        createBuildFile(request);
+        Files.writeString(
+                buildFile.toPath(),
+                "\nswaggerhub { gzipUploads = true }\n",
+                StandardOpenOption.APPEND);
+
+        assertEquals(SUCCESS, runBuildWithResult().task(":" + UPLOAD_TASK).getOutcome());
+        // the stub matches the decompressed body
+        WireMock.verify(1, postRequestedFor(url).withHeader("Content-Encoding", equalTo("gzip")));
+    }
+
+    @Test
+    public void testUploadUncompressedWhenGzipRejected() throws IOException, URISyntaxException {
+        copyInputFile(testInputAPI, testProjectDir.getRoot());
+        inputFile = getInputFilePath(testInputAPI);
+        swagger = Files.readString(inputFile, StandardCharsets.UTF_8);
+
+        SwaggerHubRequest request =
+                SwaggerHubRequest.builder()
+                        .api(api)
+                        .owner(owner)
+                        .version(version)
+                        .swagger(swagger)
+                        .build();
+
+        UrlPathPattern url = setupServerMocking(request, port, token);
+        stubFor(
+                post(url)
+                        .withHeader("Content-Encoding", equalTo("gzip"))
+                        .willReturn(aResponse().withStatus(415)));
+        createBuildFile(request);
+        Files.writeString(
+                buildFile.toPath(),
+                "\nswaggerhub { gzipUploads = true }\n",
+                StandardOpenOption.APPEND);
+
+        assertEquals(SUCCESS, runBuildWithResult().task(":" + UPLOAD_TASK).getOutcome());
+        WireMock.verify(2, postRequestedFor(url));
+        WireMock.verify(1, postRequestedFor(url).withoutHeader("Content-Encoding"));
+    }
+
+    private String batchBuildFile(String settings) {
+        return "plugins { id 'io.github.ludy87.swagger.swaggerhub.v2' }\n"
+                + UPLOAD_TASK
+                + " {\n"
+                + "    host '"
+                + host
+                + "'\n"
+                + "    port "
+                + port
+                + "\n"
+                + "    protocol 'http'\n"
+                + "    owner '"
+                + owner
+                + "'\n"
+                + "    token '"
+                + token
+                + "'\n"
+                + settings
+                + "}";
+    }
+
+    private BuildResult runBuildWithResult() {
+        return GradleRunner.create()
+                .withPluginClasspath()
+                .withProjectDir(testProjectDir.getRoot())
+                .withArguments(UPLOAD_TASK, "--stacktrace")
+                .build();
+    }
+
     private TaskOutcome runBuild(SwaggerHubRequest request) throws IOException {
         createBuildFile(request);
 
@@ -225,6 +596,7 @@ public class SwaggerHubUploadTest {
                         + "'\n"
                         + getFormatSetting(request.getFormat())
                         + getIsPrivateSetting(Boolean.TRUE.equals(request.getIsPrivate()))
+                        + extraSettings
                         + "    inputFile '"
                         + filePath
                         + "'\n"